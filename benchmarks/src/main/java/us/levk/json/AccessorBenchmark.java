@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.levk.json.BeanType.Accessor;
+
+/**
+ * Per read cost of a bean property, reflective
+ * {@link com.fasterxml.jackson.databind.ser.BeanPropertyWriter#get(Object)}
+ * against generated accessors
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (NANOSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class AccessorBenchmark {
+
+  public static class Bean {
+    @JsonProperty int field = 1;
+
+    public String getGetter () {
+      return "getter";
+    }
+
+    @JsonProperty
+    double method () {
+      return 2;
+    }
+  }
+
+  @Param ({ "field", "getter", "method" }) String property;
+
+  Bean bean;
+  Accessor reflective;
+  Accessor generated;
+
+  @Setup
+  public void setup () {
+    BeanType t = new JacksonBeanJsonProvider (new ObjectMapper ()).type (Bean.class);
+    int i = t.indexOf (property);
+    bean = new Bean ();
+    reflective = BeanType.reflective (t.properties[i]);
+    generated = t.accessors[i];
+  }
+
+  @Benchmark
+  public Object reflective () {
+    return reflective.get (bean);
+  }
+
+  @Benchmark
+  public Object generated () {
+    return generated.get (bean);
+  }
+}
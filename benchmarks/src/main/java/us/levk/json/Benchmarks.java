@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH entry point taking the usual command line, adds the GC profiler unless
+ * profilers are given so that every suite reports {@code gc.alloc.rate.norm}
+ * next to its score
+ * 
+ * @author levk
+ */
+public class Benchmarks {
+
+  public static void main (String[] a) throws Exception {
+    CommandLineOptions c = new CommandLineOptions (a);
+    if (c.shouldHelp ()) c.showHelp ();
+    else if (c.shouldList () || c.shouldListWithParams () || c.shouldListProfilers () || c.shouldListResultFormats ())
+      org.openjdk.jmh.Main.main (a);
+    else {
+      ChainedOptionsBuilder o = new OptionsBuilder ().parent (c);
+      if (c.getProfilers ().isEmpty ()) o.addProfiler (GCProfiler.class);
+      new Runner (o.build ()).run ();
+    }
+  }
+}
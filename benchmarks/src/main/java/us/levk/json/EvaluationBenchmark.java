@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+import us.levk.json.Graph.Node;
+
+/**
+ * Whole path evaluations over generated bean graphs, evaluated as the
+ * interceptor does with a fork per evaluation
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class EvaluationBenchmark {
+
+  @Param ({ "4", "16" }) int width;
+  @Param ({ "3", "5" }) int depth;
+  @Param ({ "$.children[0].name", "$.children[*].value", "$.children[*].children[1:3].weights[0]", "$..name",
+            "$..children[?(@.value > 10)].name" }) String path;
+
+  Node root;
+  JacksonBeanJsonProvider provider;
+  JsonPath compiled;
+  Set <String> scanned;
+
+  @Setup
+  public void setup () {
+    root = Graph.tree (width, depth);
+    provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+    compiled = JsonPath.compile (path);
+    Selector s = Selector.parse (PathCache.normalize (path));
+    scanned = s == null ? null : s.scanned ();
+  }
+
+  @Benchmark
+  public Object evaluate () {
+    return compiled.read (root, builder ().jsonProvider (provider.fork (scanned)).build ());
+  }
+}
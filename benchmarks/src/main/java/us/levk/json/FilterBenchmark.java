@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Filters over a list of beans, jayway's generic predicates against the
+ * native evaluation which compiles single property comparisons to typed reads
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class FilterBenchmark {
+
+  public static class Ticket {
+    private final long id;
+    private final double price;
+    private final String status;
+
+    Ticket (long i, double p, String s) {
+      id = i;
+      price = p;
+      status = s;
+    }
+
+    public long getId () {
+      return id;
+    }
+
+    public double getPrice () {
+      return price;
+    }
+
+    public String getStatus () {
+      return status;
+    }
+  }
+
+  @Param ({ "1000", "100000" }) int rows;
+  @Param ({ "$.rows[?(@.price < 10)].id", "$.rows[?(@.status == 'OPEN')].id",
+            "$.rows[?(@.price < 10 && @.status == 'OPEN')].id" }) String path;
+
+  Map <String, Object> document;
+  JacksonBeanJsonProvider provider;
+  JsonPath compiled;
+  PathTrie trie;
+
+  @Setup
+  public void setup () {
+    Random r = new Random (0);
+    Ticket[] a = new Ticket[rows];
+    for (int i = 0; i < rows; i++)
+      a[i] = new Ticket (i, r.nextDouble () * 100, r.nextInt (4) == 0 ? "OPEN" : "CLOSED");
+    document = singletonMap ("rows", asList (a));
+    provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+    compiled = JsonPath.compile (path);
+    trie = new PathTrie (singletonList (path), singletonList (new PathCache ().entry (path)), null);
+  }
+
+  @Benchmark
+  public Object jayway () {
+    return compiled.read (document, builder ().jsonProvider (provider.fork ()).build ());
+  }
+
+  @Benchmark
+  public Object trie () {
+    return trie.read (document, builder ().jsonProvider (provider.fork ()).build ());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Generated bean graph shared by the suites
+ * 
+ * @author levk
+ */
+public class Graph {
+
+  /**
+   * Tree node
+   */
+  public static class Node {
+    @JsonProperty String name;
+    @JsonProperty int value;
+    @JsonProperty double[] weights;
+    @JsonProperty List <Node> children = new ArrayList <> ();
+
+    public String getKind () {
+      return children.isEmpty () ? "leaf" : "branch";
+    }
+  }
+
+  /**
+   * @param w
+   *          children per node
+   * @param d
+   *          depth, a single node is depth 1
+   * @return root of a complete tree
+   */
+  public static Node tree (int w, int d) {
+    return node (w, d, new int[1]);
+  }
+
+  /**
+   * @param w
+   *          width
+   * @param d
+   *          remaining depth
+   * @param c
+   *          node counter
+   * @return subtree
+   */
+  private static Node node (int w, int d, int[] c) {
+    Node n = new Node ();
+    n.value = c[0]++;
+    n.name = "n" + n.value;
+    n.weights = new double[] { n.value, n.value / 2.0 };
+    if (d > 1) for (int i = 0; i < w; i++)
+      n.children.add (node (w, d - 1, c));
+    return n;
+  }
+}
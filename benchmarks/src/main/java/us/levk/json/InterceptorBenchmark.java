@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.jboss.resteasy.mock.MockDispatcherFactory.createDispatcher;
+import static org.jboss.resteasy.mock.MockHttpRequest.get;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+
+import us.levk.json.Graph.Node;
+
+/**
+ * End to end requests through the RESTEasy mock dispatcher, an empty path
+ * measures the response without the filter
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class InterceptorBenchmark {
+
+  @Path ("/graph")
+  public static class Resource {
+    final Node root;
+
+    Resource (Node r) {
+      root = r;
+    }
+
+    @GET
+    @Produces (APPLICATION_JSON)
+    public Node graph () {
+      return root;
+    }
+  }
+
+  @Param ({ "4" }) int width;
+  @Param ({ "4" }) int depth;
+  @Param ({ "", "$.name", "$.children[*].value", "$..name" }) String path;
+
+  Dispatcher dispatcher;
+
+  @Setup
+  public void setup () {
+    dispatcher = createDispatcher ();
+    dispatcher.getProviderFactory ().register (JsonPathInterceptor.class);
+    dispatcher.getProviderFactory ().register (JacksonJsonProvider.class);
+    dispatcher.getRegistry ().addSingletonResource (new Resource (Graph.tree (width, depth)));
+  }
+
+  @Benchmark
+  public byte[] request () throws Exception {
+    MockHttpResponse r = new MockHttpResponse ();
+    dispatcher.invoke (path.isEmpty () ? get ("/graph").accept (APPLICATION_JSON)
+                                       : get ("/graph").accept (APPLICATION_JSON).header ("JSONPath", path), r);
+    if (r.getStatus () != 200) throw new IllegalStateException (r.getStatus () + " " + r.getContentAsString ());
+    return r.getOutput ();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sequential against parallel evaluation of a filter over a list of beans, the
+ * crossover is the smallest row count at which parallel wins and is the value
+ * to configure as the {@link Parallelism} threshold
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class ParallelBenchmark {
+
+  public static class Row {
+    @JsonProperty int id;
+    @JsonProperty double score;
+  }
+
+  @Param ({ "100", "1000", "10000", "100000", "1000000" }) int rows;
+  @Param ({ "0", "4" }) int threads;
+  @Param ({ "$.rows[?(@.score > 0.9)].id", "$.rows[*].id" }) String path;
+
+  Map <String, Object> document;
+  JacksonBeanJsonProvider provider;
+  PathTrie trie;
+  Parallelism parallelism;
+
+  @Setup
+  public void setup () {
+    Random r = new Random (0);
+    Row[] a = new Row[rows];
+    for (int i = 0; i < rows; i++) {
+      a[i] = new Row ();
+      a[i].id = i;
+      a[i].score = r.nextDouble ();
+    }
+    document = singletonMap ("rows", asList (a));
+    provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+    parallelism = threads == 0 ? null : new Parallelism (2, threads);
+    List <PathCache.Entry> e = singletonList (new PathCache ().entry (path));
+    trie = new PathTrie (singletonList (path), e, parallelism);
+  }
+
+  @TearDown
+  public void teardown () {
+    if (parallelism != null) parallelism.shutdown ();
+  }
+
+  @Benchmark
+  public Object evaluate () {
+    return trie.read (document, builder ().jsonProvider (provider.fork ()).build ());
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.levk.json.Graph.Node;
+
+/**
+ * Single {@link JacksonBeanJsonProvider} operations on beans, maps, lists and
+ * primitive arrays
+ * 
+ * @author levk
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class ProviderBenchmark {
+
+  @State (Scope.Benchmark)
+  public static class Provider {
+    JacksonBeanJsonProvider provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+  }
+
+  @State (Scope.Benchmark)
+  public static class ObjectShape {
+    @Param ({ "bean", "map" }) String shape;
+
+    Object object;
+
+    @Setup
+    public void setup () {
+      Node n = Graph.tree (4, 2);
+      if ("bean".equals (shape)) object = n;
+      else {
+        Map <String, Object> m = new LinkedHashMap <> ();
+        m.put ("name", n.name);
+        m.put ("value", n.value);
+        m.put ("weights", n.weights);
+        m.put ("children", n.children);
+        m.put ("kind", n.getKind ());
+        object = m;
+      }
+    }
+  }
+
+  @State (Scope.Benchmark)
+  public static class ArrayShape {
+    @Param ({ "list", "ints" }) String shape;
+    @Param ({ "64" }) int length;
+
+    Object array;
+
+    @Setup
+    public void setup () {
+      int[] a = new int[length];
+      List <Integer> l = new ArrayList <> ();
+      for (int i = 0; i < length; i++)
+        l.add (a[i] = i);
+      array = "list".equals (shape) ? l : a;
+    }
+  }
+
+  @Benchmark
+  public Object getMapValue (Provider p, ObjectShape o) {
+    return p.provider.getMapValue (o.object, "value");
+  }
+
+  @Benchmark
+  public Object getPropertyKeys (Provider p, ObjectShape o) {
+    return p.provider.getPropertyKeys (o.object);
+  }
+
+  @Benchmark
+  public void toIterable (Provider p, ArrayShape a, Blackhole b) {
+    for (Object o : p.provider.toIterable (a.array))
+      b.consume (o);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Paths over serialized JSON, reading the text into a tree and evaluating it
+ * against filtering the raw text with a parser
+ * 
+ * @author levk
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class RawBenchmark {
+
+  @Param ({ "4", "16" }) int width;
+  @Param ({ "5" }) int depth;
+  @Param ({ "$.children[0].name", "$.children[*].children[*].value" }) String path;
+
+  byte[] document;
+  ObjectMapper mapper;
+  JacksonBeanJsonProvider provider;
+  JsonPath compiled;
+  Selector selector;
+
+  @Setup
+  public void setup () throws IOException {
+    mapper = new ObjectMapper ();
+    document = mapper.writeValueAsBytes (Graph.tree (width, depth));
+    provider = new JacksonBeanJsonProvider (mapper);
+    compiled = JsonPath.compile (path);
+    selector = Selector.parse (path);
+  }
+
+  @Benchmark
+  public void tree (Blackhole b) throws IOException {
+    Object r = compiled.read (RawProjection.tree (document, mapper), builder ().jsonProvider (provider.fork ()).build ());
+    mapper.writeValue (sink (b), r);
+  }
+
+  @Benchmark
+  public void raw (Blackhole b) throws IOException {
+    RawProjection.write (document, selector, mapper, sink (b));
+  }
+
+  static OutputStream sink (Blackhole b) {
+    return new OutputStream () {
+      @Override
+      public void write (int c) {
+        b.consume (c);
+      }
+
+      @Override
+      public void write (byte[] c, int o, int l) {
+        b.consume (l);
+      }
+    };
+  }
+}
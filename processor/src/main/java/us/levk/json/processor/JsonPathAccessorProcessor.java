@@ -0,0 +1,543 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json.processor;
+
+import static java.util.Arrays.asList;
+import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.TRANSIENT;
+import static javax.lang.model.element.NestingKind.MEMBER;
+import static javax.lang.model.element.NestingKind.TOP_LEVEL;
+import static javax.lang.model.util.ElementFilter.fieldsIn;
+import static javax.lang.model.util.ElementFilter.methodsIn;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.FileObject;
+
+/**
+ * Generates a {@code us.levk.json.JsonPathAccessors} property table for every
+ * class annotated with {@code us.levk.json.JsonPathAccessible} and registers
+ * the tables as services. Properties are found the way Jackson finds them with
+ * its default configuration: public fields, public getters and is-getters, and
+ * any field or method annotated with {@code @JsonProperty} or
+ * {@code @JsonGetter}, named after the annotation or the member with leading
+ * upper case letters of the getter suffix lower cased; {@code @JsonIgnore},
+ * {@code @JsonIgnoreProperties} and {@code @JsonPropertyOrder} are honored.
+ * Fields come first, then getters, in declaration order from the topmost
+ * superclass down. Classes Jackson would not write as beans and properties the
+ * generated table cannot read are reported as errors
+ * 
+ * @author levk
+ */
+@SupportedAnnotationTypes (JsonPathAccessorProcessor.ACCESSIBLE)
+public class JsonPathAccessorProcessor extends AbstractProcessor {
+
+  /**
+   * Marker annotation
+   */
+  static final String ACCESSIBLE = "us.levk.json.JsonPathAccessible";
+  /**
+   * Service interface
+   */
+  static final String ACCESSORS = "us.levk.json.JsonPathAccessors";
+  /**
+   * Jackson annotation package
+   */
+  private static final String ANNOTATION = "com.fasterxml.jackson.annotation.";
+  /**
+   * Jackson annotations replacing bean serialization
+   */
+  private static final List <String> UNSUPPORTED = asList (ANNOTATION + "JsonValue", ANNOTATION + "JsonAnyGetter",
+                                                           ANNOTATION + "JsonUnwrapped", ANNOTATION + "JsonRawValue");
+  /**
+   * Types Jackson writes as something other than a bean
+   */
+  private static final List <String> CONTAINERS = asList ("java.lang.Iterable", "java.util.Map", "java.util.Map.Entry",
+                                                          "java.lang.Number", "java.lang.CharSequence",
+                                                          "java.util.Optional", "java.util.concurrent.atomic.AtomicReference",
+                                                          "java.util.Date", "java.util.Calendar",
+                                                          "java.time.temporal.TemporalAccessor");
+
+  /**
+   * Generated tables, registered once processing is over
+   */
+  private final Set <String> generated = new TreeSet <> ();
+
+  /**
+   * Property being collected
+   */
+  private static final class Property {
+    /**
+     * Name implied by the member
+     */
+    private final String implicit;
+    /**
+     * Name given by an annotation, null if none
+     */
+    private String explicit;
+    /**
+     * Visible field, null if none
+     */
+    private VariableElement field;
+    /**
+     * Visible getter, null if none
+     */
+    private ExecutableElement getter;
+    /**
+     * Whether a member is ignored
+     */
+    private boolean ignored;
+
+    /**
+     * @param n
+     *          implicit name
+     */
+    private Property (String n) {
+      implicit = n;
+    }
+
+    /**
+     * @return serialized name
+     */
+    private String name () {
+      return explicit == null || explicit.isEmpty () ? implicit : explicit;
+    }
+
+    /**
+     * @return accessor, null if no member is visible
+     */
+    private Element accessor () {
+      return getter != null ? getter : field;
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+   */
+  @Override
+  public SourceVersion getSupportedSourceVersion () {
+    return SourceVersion.latestSupported ();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+   */
+  @Override
+  public boolean process (Set <? extends TypeElement> a, RoundEnvironment r) {
+    TypeElement t = processingEnv.getElementUtils ().getTypeElement (ACCESSIBLE);
+    if (t != null) for (Element e : r.getElementsAnnotatedWith (t))
+      if (valid (e)) generate ((TypeElement) e);
+    if (r.processingOver () && !generated.isEmpty ()) register ();
+    return true;
+  }
+
+  /**
+   * @param e
+   *          annotated element
+   * @return whether a table can be generated for the element
+   */
+  private boolean valid (Element e) {
+    if (e.getKind () != CLASS) return error ("Only classes can be JSONPath accessible", e);
+    TypeElement t = (TypeElement) e;
+    if (t.getModifiers ().contains (ABSTRACT)) return error ("Abstract classes cannot be JSONPath accessible", e);
+    for (Element o = t; o instanceof TypeElement; o = o.getEnclosingElement ()) {
+      TypeElement c = (TypeElement) o;
+      if ((c.getNestingKind () != TOP_LEVEL && c.getNestingKind () != MEMBER) || c.getModifiers ().contains (PRIVATE))
+        return error ("JSONPath accessible classes must be visible from their package", e);
+    }
+    for (String c : CONTAINERS)
+      if (subtype (t.asType (), c)) return error ("Jackson does not write " + c + " as a bean", e);
+    AnnotationMirror j = annotation (t, "com.fasterxml.jackson.databind.annotation.JsonSerialize");
+    if (j != null && value (j, "using") != null)
+      return error ("Classes with a custom serializer cannot be JSONPath accessible", e);
+    AnnotationMirror f = annotation (t, ANNOTATION + "JsonFormat");
+    Object s = f == null ? null : value (f, "shape");
+    if (s != null && !asList ("ANY", "NATURAL", "OBJECT").contains (s.toString ()))
+      return error ("Classes written in shape " + s + " cannot be JSONPath accessible", e);
+    return true;
+  }
+
+  /**
+   * @param t
+   *          annotated class
+   */
+  private void generate (TypeElement t) {
+    Map <String, Property> p = properties (t);
+    if (p == null) return;
+    PackageElement k = processingEnv.getElementUtils ().getPackageOf (t);
+    String n = k.isUnnamed () ? "" : k.getQualifiedName ().toString ();
+    String s = name (t);
+    String q = (n.isEmpty () ? "" : n + ".") + s;
+    String b = t.getQualifiedName () + (t.getTypeParameters ().isEmpty () ? "" : wildcards (t));
+    StringBuilder c = new StringBuilder ();
+    if (!n.isEmpty ()) c.append ("package ").append (n).append (";\n\n");
+    c.append ("/**\n * Property table of {@link ").append (t.getQualifiedName ())
+     .append ("}, generated by\n * ").append (getClass ().getName ()).append ("\n */\n");
+    c.append ("public final class ").append (s).append (" implements ").append (ACCESSORS).append (" {\n\n");
+    c.append ("  /**\n   * Property names in serialization order\n   */\n");
+    c.append ("  private static final String[] NAMES = {");
+    int i = 0;
+    for (String m : p.keySet ())
+      c.append (i++ == 0 ? " " : ", ").append (literal (m));
+    c.append (i == 0 ? "};\n\n" : " };\n\n");
+    c.append ("  @Override\n  public Class <?> type () {\n    return ").append (t.getQualifiedName ())
+     .append (".class;\n  }\n\n");
+    c.append ("  @Override\n  public String[] names () {\n    return NAMES.clone ();\n  }\n\n");
+    c.append ("  @Override\n  public Object get (Object o, int i) {\n");
+    boolean x = false;
+    for (Property y : p.values ())
+      x |= y.accessor () instanceof ExecutableElement && !((ExecutableElement) y.accessor ()).getThrownTypes ().isEmpty ();
+    String d = x ? "  " : "";
+    if (!p.isEmpty ()) c.append ("    ").append (b).append (" b = (").append (b).append (") o;\n");
+    if (x) c.append ("    try {\n");
+    c.append (d).append ("    switch (i) {\n");
+    i = 0;
+    for (Property y : p.values ()) {
+      Element e = y.accessor ();
+      c.append (d).append ("    case ").append (i++).append (":\n").append (d).append ("      return b.")
+       .append (e.getSimpleName ()).append (e instanceof ExecutableElement ? " ();\n" : ";\n");
+    }
+    c.append (d).append ("    default:\n").append (d)
+     .append ("      throw new IndexOutOfBoundsException (\"No property \" + i);\n").append (d).append ("    }\n");
+    if (x) c.append ("    } catch (RuntimeException e) {\n      throw e;\n    } catch (Exception e) {\n")
+            .append ("      throw new com.jayway.jsonpath.InvalidJsonException (e);\n    }\n");
+    c.append ("  }\n}\n");
+    try (Writer w = processingEnv.getFiler ().createSourceFile (q, t).openWriter ()) {
+      w.write (c.toString ());
+    } catch (IOException f) {
+      error ("Unable to write " + q + ": " + f.getMessage (), t);
+      return;
+    }
+    generated.add (q);
+  }
+
+  /**
+   * @param t
+   *          class
+   * @return properties by serialized name in serialization order, null on
+   *         error
+   */
+  private Map <String, Property> properties (TypeElement t) {
+    Deque <TypeElement> h = new ArrayDeque <> ();
+    for (TypeElement c = t; c != null && !c.getQualifiedName ().contentEquals ("java.lang.Object"); c = superclass (c))
+      h.push (c);
+    boolean v = true;
+    for (TypeElement c : h)
+      for (Element e : c.getEnclosedElements ())
+        for (String u : UNSUPPORTED)
+          if (annotation (e, u) != null) v = error ("@" + u.substring (ANNOTATION.length ()) + " is not supported", e);
+    Map <String, Property> p = new LinkedHashMap <> ();
+    for (TypeElement c : h)
+      for (VariableElement f : fieldsIn (c.getEnclosedElements ())) {
+        if (f.getModifiers ().contains (STATIC)) continue;
+        Property y = p.computeIfAbsent (f.getSimpleName ().toString (), Property::new);
+        if (!include (f, y)) continue;
+        if (explicit (f) || (f.getModifiers ().contains (PUBLIC) && !f.getModifiers ().contains (TRANSIENT)))
+          y.field = f;
+      }
+    for (TypeElement c : h)
+      for (ExecutableElement m : methodsIn (c.getEnclosedElements ())) {
+        if (m.getModifiers ().contains (STATIC) || !m.getParameters ().isEmpty ()
+            || m.getReturnType ().getKind () == TypeKind.VOID)
+          continue;
+        String n = getter (m);
+        boolean x = explicit (m);
+        if (n == null && !x) continue;
+        Property y = p.computeIfAbsent (n == null ? m.getSimpleName ().toString () : n, Property::new);
+        if (include (m, y) && (x || m.getModifiers ().contains (PUBLIC))) y.getter = m;
+      }
+    AnnotationMirror g = annotation (t, ANNOTATION + "JsonIgnoreProperties");
+    Set <String> z = new HashSet <> (strings (g == null ? null : value (g, "value")));
+    Map <String, Property> r = new LinkedHashMap <> ();
+    for (Property y : p.values ())
+      if (y.accessor () == null || (y.ignored && y.explicit == null) || z.contains (y.name ())) continue;
+      else if (r.put (y.name (), y) != null) v = error ("Conflicting JSONPath accessible property " + y.name (), t);
+      else if (!accessible (y.accessor (), t))
+        v = error ("Property " + y.name () + " is not accessible from " + name (t), y.accessor ());
+    AnnotationMirror o = annotation (t, ANNOTATION + "JsonPropertyOrder");
+    if (o != null) {
+      Map <String, Property> s = new LinkedHashMap <> ();
+      for (String n : strings (value (o, "value")))
+        if (r.containsKey (n)) s.put (n, r.remove (n));
+      if (Boolean.TRUE.equals (value (o, "alphabetic"))) for (String n : new TreeSet <> (r.keySet ()))
+        s.put (n, r.get (n));
+      else s.putAll (r);
+      r = s;
+    }
+    return v ? r : null;
+  }
+
+  /**
+   * Records the member's annotations on the property
+   * 
+   * @param e
+   *          field or method
+   * @param y
+   *          property
+   * @return whether the member is not ignored
+   */
+  private boolean include (Element e, Property y) {
+    AnnotationMirror p = annotation (e, ANNOTATION + "JsonProperty");
+    if (p == null) p = annotation (e, ANNOTATION + "JsonGetter");
+    if (p != null) {
+      Object n = value (p, "value");
+      Object a = value (p, "access");
+      if (a != null && "WRITE_ONLY".equals (a.toString ())) {
+        y.ignored = true;
+        return false;
+      } else if (y.explicit == null || y.explicit.isEmpty ()) y.explicit = n == null ? "" : n.toString ();
+    }
+    AnnotationMirror i = annotation (e, ANNOTATION + "JsonIgnore");
+    if (i != null && !Boolean.FALSE.equals (value (i, "value"))) {
+      y.ignored = true;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param e
+   *          member
+   * @return whether the member is annotated for inclusion
+   */
+  private boolean explicit (Element e) {
+    return annotation (e, ANNOTATION + "JsonProperty") != null || annotation (e, ANNOTATION + "JsonGetter") != null;
+  }
+
+  /**
+   * @param m
+   *          method
+   * @return implicit property name if the method is a getter, null otherwise
+   */
+  private String getter (ExecutableElement m) {
+    String n = m.getSimpleName ().toString ();
+    if (n.startsWith ("is") && (m.getReturnType ().getKind () == TypeKind.BOOLEAN
+                                || m.getReturnType ().toString ().equals ("java.lang.Boolean")))
+      return mangle (n, 2);
+    else if (n.startsWith ("get")) return mangle (n, 3);
+    else return null;
+  }
+
+  /**
+   * @param n
+   *          method name
+   * @param o
+   *          prefix length
+   * @return method name without the prefix and its leading upper case letters
+   *         lower cased, null if nothing follows the prefix
+   */
+  static String mangle (String n, int o) {
+    if (n.length () == o) return null;
+    StringBuilder b = new StringBuilder (n.length () - o);
+    int i = o;
+    for (char c; i < n.length () && (c = n.charAt (i)) != Character.toLowerCase (c); i++)
+      b.append (Character.toLowerCase (c));
+    return b.append (n, i, n.length ()).toString ();
+  }
+
+  /**
+   * @param e
+   *          member
+   * @param t
+   *          annotated class
+   * @return whether code in the annotated class' package can read the member
+   */
+  private boolean accessible (Element e, TypeElement t) {
+    if (e.getModifiers ().contains (PUBLIC)) return true;
+    else if (e.getModifiers ().contains (PRIVATE)) return false;
+    return processingEnv.getElementUtils ().getPackageOf (e).equals (processingEnv.getElementUtils ().getPackageOf (t));
+  }
+
+  /**
+   * Writes the service registration, keeping tables registered by earlier
+   * compilations of the same output
+   */
+  private void register () {
+    String f = "META-INF/services/" + ACCESSORS;
+    Set <String> s = new TreeSet <> (generated);
+    try {
+      FileObject o = processingEnv.getFiler ().getResource (CLASS_OUTPUT, "", f);
+      try (BufferedReader r = new BufferedReader (new InputStreamReader (o.openInputStream (), "UTF-8"))) {
+        for (String l; (l = r.readLine ()) != null;)
+          if (!(l = l.trim ()).isEmpty () && !l.startsWith ("#")) s.add (l);
+      }
+    } catch (IOException e) {}
+    try (Writer w = new OutputStreamWriter (processingEnv.getFiler ().createResource (CLASS_OUTPUT, "", f)
+                                                                   .openOutputStream (), "UTF-8")) {
+      for (String l : s)
+        w.write (l + "\n");
+    } catch (IOException e) {
+      processingEnv.getMessager ().printMessage (ERROR, "Unable to write " + f + ": " + e.getMessage ());
+    }
+  }
+
+  /**
+   * @param t
+   *          class
+   * @return generated table name, enclosing class names joined by underscores
+   */
+  private static String name (TypeElement t) {
+    String n = t.getSimpleName () + "_JsonPathAccessors";
+    for (Element e = t.getEnclosingElement (); e instanceof TypeElement; e = e.getEnclosingElement ())
+      n = e.getSimpleName () + "_" + n;
+    return n;
+  }
+
+  /**
+   * @param t
+   *          generic class
+   * @return wildcard type arguments
+   */
+  private static String wildcards (TypeElement t) {
+    StringBuilder b = new StringBuilder ("<");
+    for (int i = 0; i < t.getTypeParameters ().size (); i++)
+      b.append (i == 0 ? "?" : ", ?");
+    return b.append (">").toString ();
+  }
+
+  /**
+   * @param s
+   *          string
+   * @return Java string literal
+   */
+  static String literal (String s) {
+    StringBuilder b = new StringBuilder ("\"");
+    for (char c : s.toCharArray ())
+      if (c == '"' || c == '\\') b.append ('\\').append (c);
+      else if (c < 0x20 || c > 0x7e) b.append (String.format ("\\u%04x", (int) c));
+      else b.append (c);
+    return b.append ('"').toString ();
+  }
+
+  /**
+   * @param c
+   *          class
+   * @return superclass, null if none
+   */
+  private static TypeElement superclass (TypeElement c) {
+    TypeMirror s = c.getSuperclass ();
+    return s instanceof DeclaredType ? (TypeElement) ((DeclaredType) s).asElement () : null;
+  }
+
+  /**
+   * @param t
+   *          type
+   * @param n
+   *          canonical name of the supertype
+   * @return whether the type is a subtype of the named type
+   */
+  private boolean subtype (TypeMirror t, String n) {
+    TypeElement s = processingEnv.getElementUtils ().getTypeElement (n);
+    return s != null && processingEnv.getTypeUtils ().isSubtype (processingEnv.getTypeUtils ().erasure (t),
+                                                                 processingEnv.getTypeUtils ().erasure (s.asType ()));
+  }
+
+  /**
+   * @param e
+   *          element
+   * @param n
+   *          annotation class name
+   * @return annotation, null if absent
+   */
+  private static AnnotationMirror annotation (Element e, String n) {
+    for (AnnotationMirror m : e.getAnnotationMirrors ())
+      if (((TypeElement) m.getAnnotationType ().asElement ()).getQualifiedName ().contentEquals (n)) return m;
+    return null;
+  }
+
+  /**
+   * @param m
+   *          annotation
+   * @param n
+   *          attribute
+   * @return explicitly given attribute value, null if defaulted
+   */
+  private static Object value (AnnotationMirror m, String n) {
+    for (Map.Entry <? extends ExecutableElement, ? extends AnnotationValue> e : m.getElementValues ().entrySet ())
+      if (e.getKey ().getSimpleName ().contentEquals (n)) return e.getValue ().getValue ();
+    return null;
+  }
+
+  /**
+   * @param v
+   *          string or string array attribute value
+   * @return strings
+   */
+  private static List <String> strings (Object v) {
+    List <String> s = new ArrayList <> ();
+    if (v instanceof List) for (Object e : (List <?>) v)
+      s.add (((AnnotationValue) e).getValue ().toString ());
+    else if (v != null) s.add (v.toString ());
+    return s;
+  }
+
+  /**
+   * @param m
+   *          message
+   * @param e
+   *          offending element
+   * @return false
+   */
+  private boolean error (String m, Element e) {
+    processingEnv.getMessager ().printMessage (ERROR, m, e);
+    return false;
+  }
+}
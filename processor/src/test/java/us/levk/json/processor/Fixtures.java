@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json.processor;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import us.levk.json.JsonPathAccessible;
+
+public class Fixtures {
+
+  public static class Base {
+    public int inherited = 1;
+
+    public String getBase () {
+      return "base";
+    }
+
+    public String getOverridden () {
+      return "base";
+    }
+  }
+
+  @JsonPathAccessible
+  @JsonIgnoreProperties ("skipped")
+  public static class Dto extends Base {
+    public long id = 7;
+    public int skipped = 2;
+    public transient int temporary = 3;
+    @JsonIgnore public String secret = "secret";
+    @JsonProperty ("renamed") int count = 4;
+    @JsonProperty (access = Access.WRITE_ONLY) public String password = "password";
+    private String name = "name";
+    private boolean active = true;
+    private final List <Dto> children = new ArrayList <> ();
+
+    public String getName () {
+      return name;
+    }
+
+    public boolean isActive () {
+      return active;
+    }
+
+    public Boolean isBoxed () {
+      return Boolean.FALSE;
+    }
+
+    public String isNotAGetter () {
+      return "no";
+    }
+
+    public URL getURL () throws Exception {
+      return new URL ("http://levk.us");
+    }
+
+    public List <Dto> getChildren () {
+      return children;
+    }
+
+    @JsonProperty
+    String label () {
+      return "label";
+    }
+
+    @JsonGetter ("alias")
+    public int getAliased () {
+      return 5;
+    }
+
+    @Override
+    public String getOverridden () {
+      return "dto";
+    }
+
+    public String getWithArgument (int i) {
+      return "no";
+    }
+
+    public static String getStatic () {
+      return "no";
+    }
+
+    @JsonIgnore
+    public String getIgnored () {
+      return "no";
+    }
+  }
+
+  @JsonPathAccessible
+  @JsonPropertyOrder ({ "z", "a" })
+  public static class Ordered {
+    public int a = 1;
+    public int m = 2;
+    public int z = 3;
+  }
+
+  @JsonPathAccessible
+  public static class Box <T> {
+    public T value;
+    @JsonProperty ("ключ") public String key = "k";
+
+    public Box () {}
+
+    public Box (T v) {
+      value = v;
+    }
+  }
+
+  @JsonPathAccessible
+  public static class Empty {}
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json.processor;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.JavaFileObject.Kind.SOURCE;
+import static javax.tools.ToolProvider.getSystemJavaCompiler;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+
+import us.levk.json.JacksonBeanJsonProvider;
+import us.levk.json.JsonPathAccessors;
+
+public class JsonPathAccessorProcessorTest {
+
+  ObjectMapper m = new ObjectMapper ();
+
+  Map <Class <?>, JsonPathAccessors> tables () {
+    Map <Class <?>, JsonPathAccessors> t = new HashMap <> ();
+    for (JsonPathAccessors a : ServiceLoader.load (JsonPathAccessors.class))
+      t.put (a.type (), a);
+    return t;
+  }
+
+  void matches (Object o) {
+    JsonPathAccessors a = tables ().get (o.getClass ());
+    JsonNode j = m.valueToTree (o);
+    Set <String> n = new HashSet <> ();
+    j.fieldNames ().forEachRemaining (n::add);
+    assertThat (new HashSet <> (asList (a.names ())), is (n));
+    for (int i = 0; i < a.names ().length; i++)
+      assertThat (a.names ()[i], m.valueToTree (a.get (o, i)), is (j.get (a.names ()[i])));
+  }
+
+  @Test
+  public void discovery () {
+    assertThat (tables ().keySet (), is (new HashSet <> (asList (Fixtures.Dto.class, Fixtures.Ordered.class,
+                                                                 Fixtures.Box.class, Fixtures.Empty.class))));
+  }
+
+  @Test
+  public void jackson () {
+    matches (new Fixtures.Dto ());
+    matches (new Fixtures.Box <> (asList (1, 2)));
+    assertThat (asList (tables ().get (Fixtures.Ordered.class).names ()), is (asList ("z", "a", "m")));
+    assertThat (tables ().get (Fixtures.Empty.class).names ().length, is (0));
+  }
+
+  @Test
+  public void provider () {
+    Configuration c = Configuration.builder ().jsonProvider (new JacksonBeanJsonProvider (m)).build ();
+    Fixtures.Dto d = new Fixtures.Dto ();
+    d.getChildren ().add (new Fixtures.Dto ());
+    assertThat (JsonPath.compile ("$.children[*].alias").read (d, c), is ((Object) asList (5)));
+    assertThat (JsonPath.compile ("$.renamed").read (d, c), is ((Object) 4));
+    assertThat (JsonPath.compile ("$['ключ']").read (new Fixtures.Box <> (1), c), is ((Object) "k"));
+  }
+
+  @Test
+  public void mangle () {
+    assertThat (JsonPathAccessorProcessor.mangle ("getURL", 3), is ("url"));
+    assertThat (JsonPathAccessorProcessor.mangle ("getURLs", 3), is ("urls"));
+    assertThat (JsonPathAccessorProcessor.mangle ("getUrlValue", 3), is ("urlValue"));
+    assertThat (JsonPathAccessorProcessor.mangle ("getx", 3), is ("x"));
+    assertThat (JsonPathAccessorProcessor.mangle ("is", 2), is ((String) null));
+  }
+
+  List <String> errors (String s) throws Exception {
+    JavaFileObject f = new SimpleJavaFileObject (URI.create ("string:///p/Bad.java"), SOURCE) {
+      @Override
+      public CharSequence getCharContent (boolean i) {
+        return s;
+      }
+    };
+    Path o = Files.createTempDirectory ("processor");
+    DiagnosticCollector <JavaFileObject> d = new DiagnosticCollector <> ();
+    String p = System.getProperty ("surefire.test.class.path", System.getProperty ("java.class.path"));
+    CompilationTask t = getSystemJavaCompiler ().getTask (null, null, d, asList ("-proc:only", "-classpath", p, "-s",
+                                                                               o.toString (), "-d", o.toString ()),
+                                                        null, singleton (f));
+    t.setProcessors (singleton (new JsonPathAccessorProcessor ()));
+    t.call ();
+    List <String> e = new ArrayList <> ();
+    d.getDiagnostics ().stream ().filter (x -> x.getKind () == ERROR).forEach (x -> e.add (x.getMessage (null)));
+    return e;
+  }
+
+  @Test
+  public void errors () throws Exception {
+    assertThat (errors ("package p; @us.levk.json.JsonPathAccessible public class Bad {"
+                        + " @com.fasterxml.jackson.annotation.JsonProperty private int x; }"),
+                is (asList ("Property x is not accessible from Bad_JsonPathAccessors")));
+    assertThat (errors ("package p; @us.levk.json.JsonPathAccessible public class Bad extends java.util.ArrayList {}"),
+                is (asList ("Jackson does not write java.lang.Iterable as a bean")));
+    assertThat (errors ("package p; @us.levk.json.JsonPathAccessible public abstract class Bad {}"),
+                is (asList ("Abstract classes cannot be JSONPath accessible")));
+    assertThat (errors ("package p; @us.levk.json.JsonPathAccessible public class Bad {"
+                        + " @com.fasterxml.jackson.annotation.JsonValue public String v () { return null; } }"),
+                is (asList ("@JsonValue is not supported")));
+    assertThat (new LinkedHashSet <> (errors ("package p; @us.levk.json.JsonPathAccessible public class Bad {"
+                                               + " public int a; @com.fasterxml.jackson.annotation.JsonProperty (\"a\")"
+                                               + " public int b; }")),
+                is (singleton ("Conflicting JSONPath accessible property a")));
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lazy, type specialized list views over Java arrays; elements are boxed one
+ * at a time as they are read and sub lists are views so that slicing a view
+ * never touches elements outside of the slice
+ * 
+ * @author levk
+ */
+final class ArrayViews {
+
+  private ArrayViews () {}
+
+  /**
+   * @param a
+   *          array
+   * @param i
+   *          index
+   * @return element
+   * @throws IllegalArgumentException
+   *           if the object is not an array
+   */
+  static Object get (Object a, int i) {
+    if (a instanceof Object[]) return ((Object[]) a)[i];
+    else if (a instanceof double[]) return ((double[]) a)[i];
+    else if (a instanceof long[]) return ((long[]) a)[i];
+    else if (a instanceof int[]) return ((int[]) a)[i];
+    else if (a instanceof float[]) return ((float[]) a)[i];
+    else if (a instanceof short[]) return ((short[]) a)[i];
+    else if (a instanceof byte[]) return ((byte[]) a)[i];
+    else if (a instanceof char[]) return ((char[]) a)[i];
+    else if (a instanceof boolean[]) return ((boolean[]) a)[i];
+    else throw new IllegalArgumentException ("Not an array " + a);
+  }
+
+  /**
+   * @param a
+   *          array
+   * @return list view
+   * @throws IllegalArgumentException
+   *           if the object is not an array
+   */
+  static List <Object> of (Object a) {
+    if (a instanceof Object[]) return asList ((Object[]) a);
+    else if (a instanceof double[]) {
+      double[] v = (double[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof long[]) {
+      long[] v = (long[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof int[]) {
+      int[] v = (int[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof float[]) {
+      float[] v = (float[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof short[]) {
+      short[] v = (short[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof byte[]) {
+      byte[] v = (byte[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof char[]) {
+      char[] v = (char[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else if (a instanceof boolean[]) {
+      boolean[] v = (boolean[]) a;
+      return new View (v.length) {
+        @Override
+        public Object get (int i) {
+          return v[i];
+        }
+      };
+    } else throw new IllegalArgumentException ("Not an array " + a);
+  }
+
+  /**
+   * Fixed size read only view, bounds are checked by the backing array
+   */
+  private static abstract class View extends AbstractList <Object> implements RandomAccess {
+    /**
+     * Length
+     */
+    private final int size;
+
+    /**
+     * @param s
+     *          length
+     */
+    View (int s) {
+      size = s;
+    }
+
+    @Override
+    public int size () {
+      return size;
+    }
+  }
+}
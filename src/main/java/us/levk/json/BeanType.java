@@ -0,0 +1,584 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.databind.MapperFeature.SORT_PROPERTIES_ALPHABETICALLY;
+import static com.fasterxml.jackson.databind.MapperFeature.USE_STD_BEAN_NAMING;
+import static java.lang.invoke.LambdaMetafactory.metafactory;
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isPublic;
+import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
+import static java.util.Collections.unmodifiableList;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.cfg.SerializerFactoryConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
+import com.fasterxml.jackson.databind.ser.BasicSerializerFactory;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
+import com.fasterxml.jackson.databind.ser.VirtualBeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.IterableSerializer;
+import com.jayway.jsonpath.InvalidJsonException;
+
+/**
+ * Per class metadata used by {@link JacksonBeanJsonProvider}, built once per
+ * class and mapper configuration and immutable thereafter
+ * 
+ * @author levk
+ */
+final class BeanType {
+
+  /**
+   * JSON shape of a class
+   */
+  enum Kind {
+    SCALAR, ARRAY, MAP, BEAN, CUSTOM
+  }
+
+  /**
+   * Property value accessor
+   */
+  @FunctionalInterface
+  interface Accessor {
+    /**
+     * @param o
+     *          bean
+     * @return property value
+     */
+    Object get (Object o);
+  }
+
+  /**
+   * Integral property value accessor
+   */
+  @FunctionalInterface
+  interface LongAccessor {
+    /**
+     * @param o
+     *          bean
+     * @return property value
+     */
+    long get (Object o);
+  }
+
+  /**
+   * Double property value accessor
+   */
+  @FunctionalInterface
+  interface DoubleAccessor {
+    /**
+     * @param o
+     *          bean
+     * @return property value
+     */
+    double get (Object o);
+  }
+
+  /**
+   * Lookup for accessor generation
+   */
+  private static final Lookup LOOKUP = MethodHandles.lookup ();
+  /**
+   * Services failing in a row after which a class loader's tables are given up
+   */
+  private static final int FAILURES = 64;
+  /**
+   * Property tables generated at compile time and visible from this class
+   * loader, by bean class
+   */
+  private static final Map <Class <?>, JsonPathAccessors> TABLES = tables (BeanType.class.getClassLoader ());
+  /**
+   * Property table generated at compile time by bean class, looked up in the
+   * bean's own class loader where it is not this class loader
+   */
+  private static final ClassValue <JsonPathAccessors> TABLE = new ClassValue <JsonPathAccessors> () {
+    @Override
+    protected JsonPathAccessors computeValue (Class <?> c) {
+      ClassLoader l = c.getClassLoader ();
+      return (l == null || l == BeanType.class.getClassLoader () ? TABLES : loaded (l)).get (c);
+    }
+  };
+  /**
+   * Property tables of other class loaders, the tables are weakly referenced as
+   * they hold classes of, and so would keep alive, their loader
+   */
+  private static final Map <ClassLoader, Reference <Map <Class <?>, JsonPathAccessors>>> LOADED = new WeakHashMap <> ();
+
+  /**
+   * Shape
+   */
+  final Kind kind;
+  /**
+   * Bean property writers in serialization order
+   */
+  final BeanPropertyWriter[] properties;
+  /**
+   * Bean property accessors, parallel to {@link #properties}
+   */
+  final Accessor[] accessors;
+  /**
+   * Unboxed accessors, parallel to {@link #properties}, generated on first
+   * use; the boxed accessor stands for properties of other types
+   */
+  private final AtomicReferenceArray <Object> unboxed;
+  /**
+   * Bean property names, parallel to {@link #properties}
+   */
+  final List <String> names;
+  /**
+   * Property name to position
+   */
+  private final Map <String, Integer> index;
+  /**
+   * Property table generated at compile time, null if the class was
+   * introspected; {@link #properties} is empty when set
+   */
+  final JsonPathAccessors generated;
+  /**
+   * Serializer lookup failure, rethrown on property access
+   */
+  private final JsonMappingException failure;
+  /**
+   * Names that may appear below each property, parallel to
+   * {@link #properties}, null elements for unbounded subtrees; computed on
+   * first deep scan
+   */
+  volatile List <Set <String>> subtrees;
+
+  /**
+   * @param c
+   *          class
+   * @param m
+   *          mapper
+   */
+  BeanType (Class <?> c, ObjectMapper m) {
+    JsonMappingException f = null;
+    BeanPropertyWriter[] p = new BeanPropertyWriter[0];
+    JsonPathAccessors g = null;
+    Kind k;
+    if (Collection.class.isAssignableFrom (c) || c.isArray ()) k = Kind.ARRAY;
+    else if (Map.class.isAssignableFrom (c)) k = Kind.MAP;
+    else if (c.isPrimitive () || Number.class.isAssignableFrom (c) || Boolean.class == c || String.class == c)
+      k = Kind.SCALAR;
+    else if ((g = table (c, m)) != null) k = Kind.BEAN;
+    else try {
+      JsonSerializer <?> j = m.getSerializerFactory ().createSerializer (m.getSerializerProviderInstance (),
+                                                                         m.constructType (c));
+      if (j instanceof IterableSerializer) k = Kind.ARRAY;
+      else if (j instanceof BeanSerializer) {
+        k = Kind.BEAN;
+        List <BeanPropertyWriter> l = new ArrayList <> ();
+        for (Iterator <PropertyWriter> i = ((BeanSerializer) j).properties (); i.hasNext ();)
+          l.add ((BeanPropertyWriter) i.next ());
+        p = l.toArray (p);
+      } else k = Kind.CUSTOM;
+    } catch (JsonMappingException e) {
+      k = Kind.BEAN;
+      f = e;
+    }
+    kind = k;
+    failure = f;
+    properties = p;
+    generated = g;
+    String[] n = g == null ? new String[p.length] : g.names ().clone ();
+    accessors = new Accessor[n.length];
+    unboxed = new AtomicReferenceArray <> (n.length);
+    index = new HashMap <> ();
+    for (int i = 0; i < n.length; i++) {
+      if (g == null) {
+        accessors[i] = accessor (p[i]);
+        n[i] = p[i].getName ();
+      } else {
+        int j = i;
+        JsonPathAccessors t = g;
+        Accessor a = o -> t.get (o, j);
+        accessors[i] = wrapped (a);
+      }
+      index.put (n[i], i);
+    }
+    names = unmodifiableList (asList (n));
+    if (g != null) subtrees = nCopies (n.length, null);
+  }
+
+  /**
+   * @param n
+   *          property name
+   * @return position of the property or -1
+   */
+  int indexOf (String n) {
+    verify ();
+    Integer i = index.get (n);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * @return property names
+   */
+  List <String> names () {
+    verify ();
+    return names;
+  }
+
+  /**
+   * @param i
+   *          property position
+   * @return {@link LongAccessor} for integral properties, {@link DoubleAccessor}
+   *         for double properties, the boxed {@link Accessor} otherwise
+   */
+  Object unboxed (int i) {
+    Object a = unboxed.get (i);
+    if (a == null) unboxed.set (i, a = generated != null ? accessors[i] : unboxed (properties[i], accessors[i]));
+    return a;
+  }
+
+  /**
+   * @param l
+   *          class loader
+   * @return property tables registered as {@link JsonPathAccessors} services,
+   *         a provider that fails to load or is not visible as this class
+   *         loader's {@link JsonPathAccessors} is skipped
+   */
+  private static Map <Class <?>, JsonPathAccessors> tables (ClassLoader l) {
+    Map <Class <?>, JsonPathAccessors> t = new HashMap <> ();
+    Iterator <JsonPathAccessors> i = ServiceLoader.load (JsonPathAccessors.class, l).iterator ();
+    for (int f = 0; f < FAILURES;)
+      try {
+        if (!i.hasNext ()) break;
+        JsonPathAccessors a = i.next ();
+        t.put (a.type (), a);
+        f = 0;
+      } catch (ServiceConfigurationError e) {
+        f++;
+      }
+    return t;
+  }
+
+  /**
+   * @param l
+   *          class loader
+   * @return property tables of the class loader, scanned once for as long as
+   *         they are in use
+   */
+  private static Map <Class <?>, JsonPathAccessors> loaded (ClassLoader l) {
+    synchronized (LOADED) {
+      Reference <Map <Class <?>, JsonPathAccessors>> r = LOADED.get (l);
+      Map <Class <?>, JsonPathAccessors> t = r == null ? null : r.get ();
+      if (t == null) LOADED.put (l, new WeakReference <> (t = tables (l)));
+      return t;
+    }
+  }
+
+  /**
+   * @param c
+   *          class
+   * @param m
+   *          mapper
+   * @return generated property table of the class, null if there is none or
+   *         the mapper would name or write properties otherwise
+   */
+  private static JsonPathAccessors table (Class <?> c, ObjectMapper m) {
+    JsonPathAccessors g = TABLE.get (c);
+    if (g == null) return null;
+    SerializationConfig s = m.getSerializationConfig ();
+    SerializerFactory f = m.getSerializerFactory ();
+    if (!(f instanceof BasicSerializerFactory)) return null;
+    SerializerFactoryConfig v = ((BasicSerializerFactory) f).getFactoryConfig ();
+    return v.hasSerializers () || v.hasSerializerModifiers () || s.getPropertyNamingStrategy () != null || s.findMixInClassFor (c) != null
+           || s.isEnabled (USE_STD_BEAN_NAMING) || s.isEnabled (SORT_PROPERTIES_ALPHABETICALLY)
+           || s.getDefaultVisibilityChecker () != VisibilityChecker.Std.defaultInstance ()
+           || s.getAnnotationIntrospector ().getClass () != JacksonAnnotationIntrospector.class ? null : g;
+  }
+
+  /**
+   * Rethrows serializer lookup failure, if any
+   */
+  private void verify () {
+    if (failure != null) throw new InvalidJsonException (failure);
+  }
+
+  /**
+   * Accessors are generated by {@link java.lang.invoke.LambdaMetafactory} for
+   * public getters on public classes visible from this class loader, backed by
+   * a {@link MethodHandle} for other fields and getters, and fall back to
+   * {@link BeanPropertyWriter#get(Object)} for virtual properties or whenever
+   * the member cannot be unreflected
+   * 
+   * @param w
+   *          property writer
+   * @return accessor
+   */
+  static Accessor accessor (BeanPropertyWriter w) {
+    AnnotatedMember a = w instanceof VirtualBeanPropertyWriter ? null : w.getMember ();
+    Member m = a == null ? null : a.getMember ();
+    try {
+      if (m instanceof Method && ((Method) m).getParameterCount () == 0) return generated ((Method) m);
+      else if (m instanceof Field) return handle (LOOKUP.unreflectGetter (accessible ((Field) m)));
+    } catch (ReflectiveOperationException | LambdaConversionException e) {}
+    return reflective (w);
+  }
+
+  /**
+   * Unboxed accessors are generated like boxed ones for getters and fields
+   * declared as {@code long}, {@code int}, {@code short}, {@code byte} or
+   * {@code double}
+   * 
+   * @param w
+   *          property writer
+   * @param b
+   *          boxed accessor
+   * @return unboxed accessor or the boxed accessor if there is none
+   */
+  static Object unboxed (BeanPropertyWriter w, Accessor b) {
+    AnnotatedMember a = w instanceof VirtualBeanPropertyWriter ? null : w.getMember ();
+    Member m = a == null ? null : a.getMember ();
+    Class <?> t = m instanceof Method && ((Method) m).getParameterCount () == 0 ? ((Method) m).getReturnType ()
+                                                                                 : m instanceof Field ? ((Field) m).getType ()
+                                                                                                      : null;
+    Class <?> r = t == long.class || t == int.class || t == short.class || t == byte.class ? long.class
+                                                                                            : t == double.class ? double.class
+                                                                                                                : null;
+    if (r == null) return b;
+    Class <?> f = r == long.class ? LongAccessor.class : DoubleAccessor.class;
+    try {
+      Class <?> c = m.getDeclaringClass ();
+      if (m instanceof Method && isPublic (m.getModifiers ()) && isPublic (c.getModifiers ()) && visible (c)) {
+        Object g = instance (metafactory (LOOKUP, "get", methodType (f), methodType (r, Object.class),
+                                          LOOKUP.unreflect ((Method) m), methodType (r, c)));
+        return r == long.class ? wrapped ((LongAccessor) g) : wrapped ((DoubleAccessor) g);
+      }
+      MethodHandle h = (m instanceof Method ? LOOKUP.unreflect (accessible ((Method) m))
+                                            : LOOKUP.unreflectGetter (accessible ((Field) m))).asType (methodType (r, Object.class));
+      if (r == long.class) return (LongAccessor) o -> {
+        try {
+          return (long) h.invokeExact (o);
+        } catch (Error | InvalidJsonException e) {
+          throw e;
+        } catch (Throwable e) {
+          throw new InvalidJsonException (e);
+        }
+      };
+      else return (DoubleAccessor) o -> {
+        try {
+          return (double) h.invokeExact (o);
+        } catch (Error | InvalidJsonException e) {
+          throw e;
+        } catch (Throwable e) {
+          throw new InvalidJsonException (e);
+        }
+      };
+    } catch (ReflectiveOperationException | LambdaConversionException e) {
+      return b;
+    }
+  }
+
+  /**
+   * @param m
+   *          getter
+   * @return accessor
+   * @throws ReflectiveOperationException
+   *           if the getter cannot be accessed
+   * @throws LambdaConversionException
+   *           if the getter cannot be implemented as an accessor
+   */
+  static Accessor generated (Method m) throws ReflectiveOperationException, LambdaConversionException {
+    Class <?> c = m.getDeclaringClass ();
+    if (!isPublic (m.getModifiers ()) || !isPublic (c.getModifiers ()) || !visible (c))
+      return handle (LOOKUP.unreflect (accessible (m)));
+    MethodHandle h = LOOKUP.unreflect (m);
+    return wrapped ((Accessor) instance (metafactory (LOOKUP, "get", methodType (Accessor.class),
+                                                      methodType (Object.class, Object.class), h,
+                                                      methodType (Object.class, c))));
+  }
+
+  /**
+   * Generated accessors let the getter's exceptions through as they are,
+   * checked ones included; like {@link BeanPropertyWriter#get(Object)} these
+   * wrap them, errors and {@link InvalidJsonException} aside
+   * 
+   * @param a
+   *          accessor
+   * @return accessor wrapping the exceptions of the given one in
+   *         {@link InvalidJsonException}
+   */
+  static Accessor wrapped (Accessor a) {
+    return o -> {
+      try {
+        return a.get (o);
+      } catch (InvalidJsonException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new InvalidJsonException (e);
+      }
+    };
+  }
+
+  /**
+   * @param a
+   *          accessor
+   * @return accessor wrapping the exceptions of the given one in
+   *         {@link InvalidJsonException}
+   */
+  static LongAccessor wrapped (LongAccessor a) {
+    return o -> {
+      try {
+        return a.get (o);
+      } catch (InvalidJsonException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new InvalidJsonException (e);
+      }
+    };
+  }
+
+  /**
+   * @param a
+   *          accessor
+   * @return accessor wrapping the exceptions of the given one in
+   *         {@link InvalidJsonException}
+   */
+  static DoubleAccessor wrapped (DoubleAccessor a) {
+    return o -> {
+      try {
+        return a.get (o);
+      } catch (InvalidJsonException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new InvalidJsonException (e);
+      }
+    };
+  }
+
+  /**
+   * @param s
+   *          call site of a generated lambda without captured arguments
+   * @return functional interface instance
+   */
+  private static Object instance (CallSite s) {
+    try {
+      return s.getTarget ().invoke ();
+    } catch (Error | RuntimeException e) {
+      throw e;
+    } catch (Throwable e) {
+      // the factory of a non capturing lambda only returns its instance
+      throw new IllegalStateException (e);
+    }
+  }
+
+  /**
+   * @param h
+   *          getter handle
+   * @return accessor
+   */
+  static Accessor handle (MethodHandle h) {
+    MethodHandle g = h.asType (methodType (Object.class, Object.class));
+    return o -> {
+      try {
+        return (Object) g.invokeExact (o);
+      } catch (Error | InvalidJsonException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new InvalidJsonException (e);
+      }
+    };
+  }
+
+  /**
+   * @param w
+   *          property writer
+   * @return accessor delegating to the writer's reflective get
+   */
+  static Accessor reflective (BeanPropertyWriter w) {
+    return o -> {
+      try {
+        return w.get (o);
+      } catch (Exception e) {
+        throw new InvalidJsonException (e);
+      }
+    };
+  }
+
+  /**
+   * @param m
+   *          member
+   * @return the member made accessible
+   * @throws IllegalAccessException
+   *           if access is denied, by a security manager or, from Java 9 on,
+   *           by the module of the member
+   */
+  private static <T extends AccessibleObject> T accessible (T m) throws IllegalAccessException {
+    try {
+      m.setAccessible (true);
+    } catch (RuntimeException e) {
+      throw (IllegalAccessException) new IllegalAccessException (e.getMessage ()).initCause (e);
+    }
+    return m;
+  }
+
+  /**
+   * @param c
+   *          class
+   * @return whether generated classes defined by this class loader can link
+   *         against the class
+   */
+  private static boolean visible (Class <?> c) {
+    try {
+      return Class.forName (c.getName (), false, BeanType.class.getClassLoader ()) == c;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Binary output for filtered responses. When the request prefers one of the
+ * configured media types over JSON the result is written in that format by an
+ * {@link ObjectWriter} derived from the resolved mapper and cached per mapper,
+ * result type and format. Supply an instance via a
+ * {@link javax.ws.rs.ext.ContextResolver} to enable it
+ * 
+ * @author levk
+ */
+public class BinaryOutput {
+
+  /**
+   * Smile media type
+   */
+  public static final MediaType SMILE = new MediaType ("application", "x-jackson-smile");
+  /**
+   * CBOR media type
+   */
+  public static final MediaType CBOR = new MediaType ("application", "cbor");
+
+  /**
+   * Factories by media type
+   */
+  private final Map <MediaType, JsonFactory> factories;
+  /**
+   * Writers
+   */
+  private final Map <Key, ObjectWriter> writers = new ConcurrentHashMap <> ();
+
+  /**
+   * @param f
+   *          factories by media type
+   */
+  public BinaryOutput (Map <MediaType, JsonFactory> f) {
+    factories = new LinkedHashMap <> (f);
+  }
+
+  /**
+   * Smile and CBOR, whichever of the Jackson dataformat modules are on the
+   * classpath
+   */
+  public BinaryOutput () {
+    this (available ());
+  }
+
+  /**
+   * @param a
+   *          acceptable media types, most preferred first
+   * @return supported media type preferred over JSON, null if none
+   */
+  MediaType negotiate (List <MediaType> a) {
+    for (MediaType m : a)
+      if (m.isWildcardType () || m.isWildcardSubtype () || m.getSubtype ().endsWith ("json")) return null;
+      else for (MediaType f : factories.keySet ())
+        if (f.isCompatible (m)) return f;
+    return null;
+  }
+
+  /**
+   * @param m
+   *          mapper
+   * @param t
+   *          result type
+   * @param f
+   *          supported media type
+   * @return writer
+   */
+  ObjectWriter writer (ObjectMapper m, Class <?> t, MediaType f) {
+    return writers.computeIfAbsent (new Key (m, t, f), k -> m.writerFor (t).with (factories.get (f)).without (AUTO_CLOSE_TARGET));
+  }
+
+  /**
+   * @return factories of the dataformat modules found
+   */
+  private static Map <MediaType, JsonFactory> available () {
+    Map <MediaType, JsonFactory> f = new LinkedHashMap <> ();
+    factory (f, SMILE, "com.fasterxml.jackson.dataformat.smile.SmileFactory");
+    factory (f, CBOR, "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+    return f;
+  }
+
+  /**
+   * @param f
+   *          factories
+   * @param m
+   *          media type
+   * @param c
+   *          factory class name
+   */
+  private static void factory (Map <MediaType, JsonFactory> f, MediaType m, String c) {
+    try {
+      f.put (m, (JsonFactory) Class.forName (c, true, BinaryOutput.class.getClassLoader ()).getDeclaredConstructor ()
+                                                                                .newInstance ());
+    } catch (ReflectiveOperationException | LinkageError e) {}
+  }
+
+  /**
+   * Writer cache key, mappers are compared by identity
+   */
+  private static final class Key {
+    /**
+     * Mapper
+     */
+    private final ObjectMapper mapper;
+    /**
+     * Result type
+     */
+    private final Class <?> type;
+    /**
+     * Media type
+     */
+    private final MediaType format;
+
+    /**
+     * @param m
+     *          mapper
+     * @param t
+     *          result type
+     * @param f
+     *          media type
+     */
+    Key (ObjectMapper m, Class <?> t, MediaType f) {
+      mapper = m;
+      type = t;
+      format = f;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+      if (!(o instanceof Key)) return false;
+      Key k = (Key) o;
+      return mapper == k.mapper && type == k.type && format.equals (k.format);
+    }
+
+    @Override
+    public int hashCode () {
+      return Objects.hash (System.identityHashCode (mapper), type, format);
+    }
+  }
+}
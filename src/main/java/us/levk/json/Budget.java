@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Per request limits on path evaluation: nodes visited, results found and
+ * wall time. Limits are checked inline by the evaluating thread, the clock is
+ * only sampled every {@value Meter#SAMPLE} nodes and on each result. A request over
+ * budget fails with 400 Bad Request. Supply an instance via a
+ * {@link javax.ws.rs.ext.ContextResolver} to enable; node limits are only
+ * enforced by {@link JacksonBeanJsonProvider} and streamed projections are not
+ * metered
+ * 
+ * @author levk
+ */
+public class Budget {
+
+  /**
+   * Maximum nodes visited
+   */
+  final long nodes;
+  /**
+   * Maximum results
+   */
+  final long results;
+  /**
+   * Maximum wall time in nanoseconds, 0 for unlimited
+   */
+  final long nanos;
+  /**
+   * Aborted evaluations
+   */
+  private final LongAdder aborts = new LongAdder ();
+
+  /**
+   * @param n
+   *          maximum nodes visited, non positive for unlimited
+   * @param r
+   *          maximum results, non positive for unlimited
+   * @param t
+   *          maximum wall time in milliseconds, non positive for unlimited
+   */
+  public Budget (long n, long r, long t) {
+    nodes = n > 0 ? n : Long.MAX_VALUE;
+    results = r > 0 ? r : Long.MAX_VALUE;
+    nanos = t > 0 ? MILLISECONDS.toNanos (t) : 0;
+  }
+
+  /**
+   * @return number of evaluations aborted for exceeding the budget
+   */
+  public long aborts () {
+    return aborts.sum ();
+  }
+
+  /**
+   * @return meter for a single evaluation starting now
+   */
+  Meter start () {
+    return new Meter (this);
+  }
+
+  /**
+   * Counts the abort and fails the request
+   * 
+   * @param l
+   *          exceeded limit
+   */
+  void abort (String l) {
+    aborts.increment ();
+    throw new WebApplicationException (Response.status (BAD_REQUEST).type (TEXT_PLAIN_TYPE)
+                                               .entity ("JSONPath evaluation exceeded " + l).build ());
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS;
+import static com.fasterxml.jackson.databind.DeserializationFeature.USE_BIG_INTEGER_FOR_INTS;
+import static java.util.Collections.unmodifiableSet;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Read only map and list views over serialized tokens. The tokens are read
+ * once into flat arrays where every container knows where it ends, objects
+ * and arrays are then materialized as views one at a time as they are reached
+ * and their members are indexed on first access, so subtrees a path never
+ * reaches cost no maps, lists or hashing. Scalars read as
+ * {@link ObjectMapper#readValue(JsonParser, Class)} would read them into an
+ * {@link Object}
+ * 
+ * @author levk
+ */
+final class BufferedTree {
+
+  /**
+   * Container tokens, null for scalars
+   */
+  private final JsonToken[] tokens;
+  /**
+   * Property names, null for array elements and the root
+   */
+  private final String[] names;
+  /**
+   * Scalar values and views of the containers materialized so far
+   */
+  private final Object[] values;
+  /**
+   * Position past the last descendant
+   */
+  private final int[] ends;
+
+  /**
+   * @param t
+   *          container tokens
+   * @param n
+   *          property names
+   * @param v
+   *          scalar values
+   * @param e
+   *          end positions
+   */
+  private BufferedTree (JsonToken[] t, String[] n, Object[] v, int[] e) {
+    tokens = t;
+    names = n;
+    values = v;
+    ends = e;
+  }
+
+  /**
+   * @param b
+   *          buffered value
+   * @param m
+   *          mapper whose deserialization features decide number types
+   * @return scalar value or a map or list view
+   * @throws IOException
+   *           on read failure
+   */
+  static Object read (TokenBuffer b, ObjectMapper m) throws IOException {
+    boolean d = m.isEnabled (USE_BIG_DECIMAL_FOR_FLOATS), g = m.isEnabled (USE_BIG_INTEGER_FOR_INTS);
+    JsonToken[] t = new JsonToken[16];
+    String[] n = new String[16];
+    Object[] v = new Object[16];
+    int[] e = new int[16];
+    Deque <Integer> s = new ArrayDeque <> ();
+    String k = null;
+    int i = 0;
+    try (JsonParser p = b.asParser ()) {
+      for (JsonToken x; (x = p.nextToken ()) != null;) {
+        if (x == JsonToken.FIELD_NAME) {
+          k = p.getCurrentName ();
+          continue;
+        } else if (x == JsonToken.END_OBJECT || x == JsonToken.END_ARRAY) {
+          e[s.pop ()] = i;
+          continue;
+        } else if (i == t.length) {
+          t = Arrays.copyOf (t, i * 2);
+          n = Arrays.copyOf (n, i * 2);
+          v = Arrays.copyOf (v, i * 2);
+          e = Arrays.copyOf (e, i * 2);
+        }
+        n[i] = k;
+        k = null;
+        e[i] = i + 1;
+        switch (x) {
+        case START_OBJECT:
+        case START_ARRAY:
+          t[i] = x;
+          s.push (i);
+          break;
+        case VALUE_STRING:
+          v[i] = p.getText ();
+          break;
+        case VALUE_NUMBER_INT:
+          v[i] = g ? p.getBigIntegerValue () : p.getNumberValue ();
+          break;
+        case VALUE_NUMBER_FLOAT:
+          v[i] = d ? p.getDecimalValue () : (Object) p.getDoubleValue ();
+          break;
+        case VALUE_TRUE:
+          v[i] = Boolean.TRUE;
+          break;
+        case VALUE_FALSE:
+          v[i] = Boolean.FALSE;
+          break;
+        case VALUE_EMBEDDED_OBJECT:
+          v[i] = p.getEmbeddedObject ();
+          break;
+        default:
+          break;
+        }
+        i++;
+      }
+    }
+    return i == 0 ? null : new BufferedTree (t, n, v, e).value (0);
+  }
+
+  /**
+   * @param i
+   *          position
+   * @return scalar value or the view of the container at the position
+   */
+  private Object value (int i) {
+    Object v = values[i];
+    if (v == null && tokens[i] != null)
+      values[i] = v = tokens[i] == JsonToken.START_OBJECT ? new Members (i) : new Elements (i);
+    return v;
+  }
+
+  /**
+   * Object view, members are indexed by name on first access and a repeated
+   * name resolves to its last value
+   */
+  private final class Members extends AbstractMap <String, Object> {
+    /**
+     * Position of the object
+     */
+    private final int start;
+    /**
+     * Position by name, null until first access
+     */
+    private Map <String, Integer> index;
+
+    /**
+     * @param s
+     *          position of the object
+     */
+    Members (int s) {
+      start = s;
+    }
+
+    /**
+     * @return position by name
+     */
+    private Map <String, Integer> index () {
+      if (index == null) {
+        index = new LinkedHashMap <> ();
+        for (int i = start + 1; i < ends[start]; i = ends[i])
+          index.put (names[i], i);
+      }
+      return index;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public Object get (Object k) {
+      Integer i = index ().get (k);
+      return i == null ? null : value (i);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey (Object k) {
+      return index ().containsKey (k);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractMap#size()
+     */
+    @Override
+    public int size () {
+      return index ().size ();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractMap#keySet()
+     */
+    @Override
+    public Set <String> keySet () {
+      return unmodifiableSet (index ().keySet ());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set <Entry <String, Object>> entrySet () {
+      return new AbstractSet <Entry <String, Object>> () {
+        @Override
+        public Iterator <Entry <String, Object>> iterator () {
+          Iterator <Entry <String, Integer>> i = index ().entrySet ().iterator ();
+          return new Iterator <Entry <String, Object>> () {
+            @Override
+            public boolean hasNext () {
+              return i.hasNext ();
+            }
+
+            @Override
+            public Entry <String, Object> next () {
+              Entry <String, Integer> e = i.next ();
+              return new SimpleImmutableEntry <> (e.getKey (), value (e.getValue ()));
+            }
+          };
+        }
+
+        @Override
+        public int size () {
+          return index ().size ();
+        }
+      };
+    }
+  }
+
+  /**
+   * Array view, element positions are collected on first access
+   */
+  private final class Elements extends AbstractList <Object> implements RandomAccess {
+    /**
+     * Position of the array
+     */
+    private final int start;
+    /**
+     * Element positions, null until first access
+     */
+    private int[] offsets;
+
+    /**
+     * @param s
+     *          position of the array
+     */
+    Elements (int s) {
+      start = s;
+    }
+
+    /**
+     * @return element positions
+     */
+    private int[] offsets () {
+      if (offsets == null) {
+        int l = 0;
+        for (int i = start + 1; i < ends[start]; i = ends[i])
+          l++;
+        offsets = new int[l];
+        for (int i = start + 1, j = 0; i < ends[start]; i = ends[i])
+          offsets[j++] = i;
+      }
+      return offsets;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public Object get (int i) {
+      return value (offsets ()[i]);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size () {
+      return offsets ().length;
+    }
+  }
+}
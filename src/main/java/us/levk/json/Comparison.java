@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+
+import java.math.BigDecimal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+/**
+ * Filter comparing one property of the item against a literal, such as
+ * {@code [?(@.price < 10)]} or {@code [?(@.status == 'OPEN')]}, evaluated
+ * without jayway. Numbers compare as primitives, strings and booleans by
+ * equality. The outcome is {@link #UNKNOWN} whenever it could differ from
+ * jayway's: the property is missing or null, the value is of another type,
+ * or the number is a float, big or beyond double precision. Callers then fall
+ * back to the filter
+ * 
+ * @author levk
+ */
+final class Comparison {
+
+  /**
+   * Outcome to be decided by jayway
+   */
+  static final int UNKNOWN = -1;
+
+  /**
+   * Largest magnitude of a long exactly representable as a double
+   */
+  private static final long EXACT = 1L << 53;
+  /**
+   * Normalized filter expression
+   */
+  private static final Pattern FILTER = Pattern.compile ("\\[\\?\\(@(?:\\.([A-Za-z_$][\\w$]*)|\\['([^'\\\\]*)'\\])"
+                                                         + "(==|!=|<=|>=|<|>)"
+                                                         + "(-?\\d+(?:\\.\\d+)?|'[^'\\\\]*'|true|false)"
+                                                         + "\\)\\]");
+
+  /**
+   * Operator
+   */
+  private enum Op {
+    EQ, NE, LT, LE, GT, GE;
+
+    /**
+     * @param c
+     *          comparison of the value to the literal
+     * @return whether the value passes
+     */
+    boolean test (int c) {
+      switch (this) {
+      case EQ:
+        return c == 0;
+      case NE:
+        return c != 0;
+      case LT:
+        return c < 0;
+      case LE:
+        return c <= 0;
+      case GT:
+        return c > 0;
+      default:
+        return c >= 0;
+      }
+    }
+  }
+
+  /**
+   * Property name
+   */
+  final String name;
+  /**
+   * Operator
+   */
+  private final Op op;
+  /**
+   * Literal, a {@link Long}, {@link Double}, {@link String} or {@link Boolean}
+   */
+  private final Object literal;
+  /**
+   * Numeric literal as a double
+   */
+  private final double real;
+
+  /**
+   * @param n
+   *          property name
+   * @param o
+   *          operator
+   * @param l
+   *          literal
+   */
+  private Comparison (String n, Op o, Object l) {
+    name = n;
+    op = o;
+    literal = l;
+    real = l instanceof Number ? ((Number) l).doubleValue () : Double.NaN;
+  }
+
+  /**
+   * @param f
+   *          normalized filter expression, brackets included
+   * @return comparison or null if the filter is not a single comparison of a
+   *         property to a literal
+   */
+  static Comparison parse (String f) {
+    Matcher m = FILTER.matcher (f);
+    if (!m.matches ()) return null;
+    String n = m.group (1) != null ? m.group (1) : m.group (2);
+    String o = m.group (3), v = m.group (4);
+    Op p = "==".equals (o) ? Op.EQ
+                           : "!=".equals (o) ? Op.NE
+                                             : "<".equals (o) ? Op.LT
+                                                              : "<=".equals (o) ? Op.LE : ">".equals (o) ? Op.GT : Op.GE;
+    Object l;
+    if (v.charAt (0) == '\'') l = v.substring (1, v.length () - 1);
+    else if ("true".equals (v) || "false".equals (v)) l = Boolean.valueOf (v);
+    else {
+      BigDecimal d = new BigDecimal (v);
+      try {
+        long i = d.longValueExact ();
+        l = i;
+        if (Math.abs (i) > EXACT) return null;
+      } catch (ArithmeticException e) {
+        double r = d.doubleValue ();
+        if (Double.isInfinite (r) || d.compareTo (new BigDecimal (Double.toString (r))) != 0) return null;
+        l = r;
+      }
+    }
+    if (!(l instanceof Number) && p != Op.EQ && p != Op.NE) return null;
+    return new Comparison (n, p, l);
+  }
+
+  /**
+   * @param x
+   *          item
+   * @param p
+   *          provider
+   * @return 1 if the item passes, 0 if not, {@link #UNKNOWN} if undecided
+   */
+  int test (Object x, JsonProvider p) {
+    if (p instanceof JacksonBeanJsonProvider) return ((JacksonBeanJsonProvider) p).compare (x, this);
+    else if (!p.isMap (x)) return UNKNOWN;
+    Object v = p.getMapValue (x, name);
+    return v == UNDEFINED ? UNKNOWN : test (v);
+  }
+
+  /**
+   * @param v
+   *          property value
+   * @return 1 if the value passes, 0 if not, {@link #UNKNOWN} if undecided
+   */
+  int test (Object v) {
+    if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte)
+      return test (((Number) v).longValue ());
+    else if (v instanceof Double) return test (((Double) v).doubleValue ());
+    else if (v instanceof Number || v == null || literal instanceof Number) return UNKNOWN;
+    else if (v.getClass () != literal.getClass ()) return UNKNOWN;
+    else return op.test (v.equals (literal) ? 0 : 1) ? 1 : 0;
+  }
+
+  /**
+   * @param v
+   *          property value
+   * @return 1 if the value passes, 0 if not, {@link #UNKNOWN} if undecided
+   */
+  int test (long v) {
+    if (literal instanceof Long) return op.test (Long.compare (v, (Long) literal)) ? 1 : 0;
+    else if (literal instanceof Double && Math.abs (v) <= EXACT) return test ((double) v);
+    else return UNKNOWN;
+  }
+
+  /**
+   * @param v
+   *          property value
+   * @return 1 if the value passes, 0 if not, {@link #UNKNOWN} if undecided
+   */
+  int test (double v) {
+    if (Double.isNaN (real) || Double.isNaN (v) || Double.isInfinite (v)) return UNKNOWN;
+    return op.test (v < real ? -1 : v > real ? 1 : 0) ? 1 : 0;
+  }
+}
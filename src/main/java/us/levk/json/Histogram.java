@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.lang.Long.numberOfLeadingZeros;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non negative values in log linear buckets, eight per
+ * power of two, so quantiles are accurate to within 12.5%
+ * 
+ * @author levk
+ */
+public class Histogram {
+
+  /**
+   * Values recorded exactly
+   */
+  private static final int LINEAR = 16;
+  /**
+   * Sub buckets per power of two, log2
+   */
+  private static final int SUB = 3;
+
+  /**
+   * Bucket counts
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray (index (Long.MAX_VALUE) + 1);
+  /**
+   * Count and sum
+   */
+  private final LongAdder count = new LongAdder (), sum = new LongAdder ();
+  /**
+   * Maximum
+   */
+  private final LongAccumulator max = new LongAccumulator (Math::max, 0);
+
+  /**
+   * @param v
+   *          value, negative values are ignored
+   */
+  void record (long v) {
+    if (v < 0) return;
+    buckets.incrementAndGet (index (v));
+    count.increment ();
+    sum.add (v);
+    max.accumulate (v);
+  }
+
+  /**
+   * @return number of values recorded
+   */
+  public long getCount () {
+    return count.sum ();
+  }
+
+  /**
+   * @return mean value
+   */
+  public double getMean () {
+    long c = count.sum ();
+    return c == 0 ? 0 : (double) sum.sum () / c;
+  }
+
+  /**
+   * @return maximum value
+   */
+  public long getMax () {
+    return max.get ();
+  }
+
+  /**
+   * @return median
+   */
+  public long getP50 () {
+    return quantile (.5);
+  }
+
+  /**
+   * @return 90th percentile
+   */
+  public long getP90 () {
+    return quantile (.9);
+  }
+
+  /**
+   * @return 99th percentile
+   */
+  public long getP99 () {
+    return quantile (.99);
+  }
+
+  /**
+   * @param q
+   *          quantile
+   * @return upper bound of the bucket holding the quantile, capped by the
+   *         maximum
+   */
+  long quantile (double q) {
+    long c = 0;
+    for (int i = 0; i < buckets.length (); i++)
+      c += buckets.get (i);
+    long r = (long) Math.ceil (q * c);
+    for (int i = 0; i < buckets.length () && c > 0; i++)
+      if ((r -= buckets.get (i)) <= 0) return Math.min (upper (i), max.get ());
+    return 0;
+  }
+
+  /**
+   * @param v
+   *          value
+   * @return bucket
+   */
+  static int index (long v) {
+    if (v < LINEAR) return (int) v;
+    int e = 63 - numberOfLeadingZeros (v);
+    return LINEAR + ((e - 4) << SUB) + (int) ((v >>> (e - SUB)) & ((1 << SUB) - 1));
+  }
+
+  /**
+   * @param i
+   *          bucket
+   * @return largest value in the bucket
+   */
+  static long upper (int i) {
+    if (i < LINEAR) return i;
+    int e = ((i - LINEAR) >> SUB) + 4, s = (i - LINEAR) & ((1 << SUB) - 1);
+    long u = ((long) ((1 << SUB) + s + 1) << (e - SUB)) - 1;
+    return u < 0 ? Long.MAX_VALUE : u;
+  }
+}
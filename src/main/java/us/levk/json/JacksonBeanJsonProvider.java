@@ -25,33 +25,56 @@
  */
 package us.levk.json;
 
-import static java.lang.reflect.Array.get;
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
 import static java.lang.reflect.Array.getLength;
 import static java.lang.reflect.Array.set;
-import static java.util.Optional.ofNullable;
-import static java.util.Spliterator.IMMUTABLE;
-import static java.util.Spliterators.spliteratorUnknownSize;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.IntStream.range;
-import static java.util.stream.StreamSupport.stream;
+import static java.lang.reflect.Modifier.isAbstract;
+import static java.lang.reflect.Modifier.isFinal;
+import static java.util.Arrays.asList;
+import static java.util.Collections.disjoint;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
-import com.fasterxml.jackson.databind.BeanProperty;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
 import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
-import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPathException;
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 
+import us.levk.json.BeanType.Kind;
+
 /**
  * Jackson based JSON provider for jayway JSONPath implementation, this provider
  * will lazily fetch properties from a bean object
@@ -60,12 +83,103 @@ import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
  */
 public class JacksonBeanJsonProvider extends JacksonJsonProvider {
 
+  /**
+   * Class metadata, replaced whenever the mapper is reconfigured, shared with
+   * forks
+   */
+  private final AtomicReference <Types> types;
+  /**
+   * Trees of objects with custom serializers, element snapshots of
+   * collections that are not lists and key types of maps by identity, only
+   * kept by forks
+   */
+  private final Map <Object, Object> trees;
+  /**
+   * Property names a deep scan is looking for, null unless the fork prunes
+   */
+  private final Set <String> targets;
+  /**
+   * Pruned bean property names by class metadata, only kept by pruning forks
+   */
+  private final Map <BeanType, List <String>> pruned;
+  /**
+   * Evaluation meter, only kept by metered forks
+   */
+  private final Meter meter;
+
   /**
    * @param m
    *          object mapper to use
    */
   public JacksonBeanJsonProvider (ObjectMapper m) {
     super (m);
+    types = new AtomicReference <> (new Types (m));
+    trees = null;
+    targets = null;
+    pruned = null;
+    meter = null;
+  }
+
+  /**
+   * @param p
+   *          parent
+   * @param t
+   *          deep scan targets
+   * @param b
+   *          evaluation meter
+   */
+  private JacksonBeanJsonProvider (JacksonBeanJsonProvider p, Set <String> t, Meter b) {
+    super (p.getObjectMapper ());
+    types = p.types;
+    trees = new IdentityHashMap <> ();
+    targets = t;
+    pruned = t == null ? null : new IdentityHashMap <> ();
+    meter = b;
+  }
+
+  /**
+   * Forks are meant for a single evaluation and are not thread safe; they
+   * share class metadata with the parent and memoize the tree representation
+   * of each object with a custom serializer so that it is serialized at most
+   * once per evaluation
+   * 
+   * @return provider for a single evaluation
+   */
+  public JacksonBeanJsonProvider fork () {
+    return fork (null);
+  }
+
+  /**
+   * A pruning fork hides bean properties whose subtree cannot contain any of
+   * the target names from {@link #getPropertyKeys(Object)}, so a deep scan for
+   * those names skips the branch without invoking its getter. Subtrees are
+   * derived from the declared property types and only trusted where no
+   * subclass can add properties: properties whose subtree holds a class that is
+   * not final, a map, a type with a custom serializer or with a generated
+   * {@link JsonPathAccessors} table are never pruned. Only valid for paths that
+   * never enumerate properties other than in a deep scan for these names
+   * 
+   * @param t
+   *          every property name referenced by the path, null for no pruning
+   * @return provider for a single evaluation
+   */
+  JacksonBeanJsonProvider fork (Set <String> t) {
+    return fork (t, null);
+  }
+
+  /**
+   * A metered fork counts every property and element it hands out and every
+   * bean property it reads, the meter aborts the evaluation once its budget is
+   * exceeded
+   * 
+   * @param t
+   *          every property name referenced by the path, null for no pruning
+   * @param b
+   *          evaluation meter, null for none
+   * @return provider for a single evaluation
+   */
+  JacksonBeanJsonProvider fork (Set <String> t, Meter b) {
+    return new JacksonBeanJsonProvider (this, t, b);
   }
 
   /*
@@ -76,9 +190,11 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public boolean isMap (Object o) {
-    if (o == null || isArray (o)) return false;
-    Class <?> c = o.getClass ();
-    return !(c.isPrimitive () || Number.class.isAssignableFrom (c) || Boolean.class == c || String.class == c);
+    if (o == null) return false;
+    else if (o instanceof JsonNode) return ((JsonNode) o).isObject ();
+    else if (o instanceof Map.Entry) return true;
+    Kind k = type (o.getClass ()).kind;
+    return k != Kind.ARRAY && k != Kind.SCALAR;
   }
 
   /*
@@ -89,7 +205,8 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public boolean isArray (Object o) {
-    return o instanceof List || (o != null && o.getClass ().isArray ());
+    return o instanceof List || (o instanceof JsonNode ? ((JsonNode) o).isArray ()
+                                                      : o != null && type (o.getClass ()).kind == Kind.ARRAY);
   }
 
   /*
@@ -101,7 +218,11 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public Object getArrayIndex (Object o, int i) {
-    return o instanceof List ? super.getArrayIndex (o, i) : get (o, i);
+    if (meter != null) meter.visit (1);
+    return o instanceof List ? deref (((List <?>) o).get (i))
+                             : o instanceof JsonNode ? unwrap (((JsonNode) o).get (i))
+                                                     : o instanceof Iterable ? deref (elements (o).get (i))
+                                                                             : ArrayViews.get (o, i);
   }
 
   /*
@@ -114,6 +235,11 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
   @Override
   public void setArrayIndex (Object o, int i, Object v) {
     if (o instanceof List) super.setArrayIndex (o, i, v);
+    else if (o instanceof ArrayNode) {
+      ArrayNode a = (ArrayNode) o;
+      if (i == a.size ()) a.add (tree (v));
+      else a.set (i, tree (v));
+    } else if (o instanceof Iterable) throw new JsonPathException ("Unable to set index " + i + " on " + o);
     else set (o, i, v);
   }
 
@@ -127,6 +253,7 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
   @Override
   public void setProperty (Object o, Object k, Object v) {
     if (o instanceof Map) super.setProperty (o, k, v);
+    else if (o instanceof ObjectNode) ((ObjectNode) o).set (k.toString (), tree (v));
     else throw new JsonPathException ("Unable to set property " + k + " on " + o);
   }
 
@@ -140,6 +267,7 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
   @Override
   public void removeProperty (Object o, Object k) {
     if (o instanceof Map) super.removeProperty (o, k);
+    else if (o instanceof ObjectNode) ((ObjectNode) o).remove (k.toString ());
     else throw new JsonPathException ("Unable to remove property " + k + " on " + o);
   }
 
@@ -151,8 +279,12 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public int length (Object o) {
-    return (o instanceof List || o instanceof Map) ? super.length (o)
-                                                   : (isArray (o) ? getLength (o) : propertySuppliers (o).size ());
+    if (o instanceof Collection) return ((Collection <?>) o).size ();
+    else if (o instanceof Map) return ((Map <?, ?>) o).size ();
+    else if (o instanceof JsonNode) return ((JsonNode) o).size ();
+    else if (o instanceof Map.Entry) return 1;
+    BeanType t = type (o.getClass ());
+    return t.kind == Kind.ARRAY ? o instanceof Iterable ? elements (o).size () : getLength (o) : t.kind == Kind.CUSTOM ? convert (o).size () : t.names ().size ();
   }
 
   /*
@@ -164,7 +296,15 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public Collection <String> getPropertyKeys (Object o) {
-    return o instanceof Map ? super.getPropertyKeys (o) : propertySuppliers (o).keySet ();
+    if (o instanceof Map) return keys ((Map <?, ?>) o);
+    else if (o instanceof Map.Entry) return singletonList (name (((Map.Entry <?, ?>) o).getKey ()));
+    else if (o instanceof JsonNode) {
+      List <String> k = new ArrayList <> (((JsonNode) o).size ());
+      ((JsonNode) o).fieldNames ().forEachRemaining (k::add);
+      return k;
+    }
+    BeanType t = type (o.getClass ());
+    return t.kind == Kind.CUSTOM ? convert (o).keySet () : targets == null ? t.names () : pruned (t);
   }
 
   /*
@@ -176,8 +316,18 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public Object getMapValue (Object o, String k) {
-    return o instanceof Map ? super.getMapValue (o, k)
-                            : ofNullable (propertySuppliers (o).get (k)).map (s -> s.get ()).orElse (UNDEFINED);
+    if (meter != null) meter.visit (1);
+    if (o instanceof Map) return value ((Map <?, ?>) o, k);
+    else if (o instanceof JsonNode) {
+      JsonNode v = ((JsonNode) o).get (k);
+      return v == null ? UNDEFINED : unwrap (v);
+    } else if (o instanceof Map.Entry) return entry ((Map.Entry <?, ?>) o, k);
+    BeanType t = type (o.getClass ());
+    if (t.kind == Kind.CUSTOM) return super.getMapValue (convert (o), k);
+    int i = t.indexOf (k);
+    if (i < 0) return UNDEFINED;
+    if (meter != null) meter.read ();
+    return deref (t.accessors[i].get (o));
   }
 
   /*
@@ -189,35 +339,428 @@ public class JacksonBeanJsonProvider extends JacksonJsonProvider {
    */
   @Override
   public Iterable <? extends Object> toIterable (Object o) {
-    return o instanceof Iterable ? super.toIterable (o)
-                                 : range (0, length (o)).mapToObj (i -> get (o, i)).collect (toList ());
+    if (meter != null) meter.visit (o instanceof Collection ? ((Collection <?>) o).size ()
+                                                            : o instanceof JsonNode ? ((JsonNode) o).size ()
+                                                                                    : o instanceof Iterable ? 0 : getLength (o));
+    if (o instanceof JsonNode) return map ((JsonNode) o, n -> unwrap ((JsonNode) n));
+    return o instanceof Iterable ? map ((Iterable <?>) o, JacksonBeanJsonProvider::deref) : ArrayViews.of (o);
+  }
+
+  /**
+   * @param s
+   *          elements
+   * @param f
+   *          mapping
+   * @return view of the elements mapped on iteration
+   */
+  private static Iterable <Object> map (Iterable <?> s, UnaryOperator <Object> f) {
+    return () -> {
+      Iterator <?> i = s.iterator ();
+      return new Iterator <Object> () {
+        @Override
+        public boolean hasNext () {
+          return i.hasNext ();
+        }
+
+        @Override
+        public Object next () {
+          return f.apply (i.next ());
+        }
+      };
+    };
+  }
+
+  /**
+   * Reads the compared property as {@link #getMapValue(Object, String)} does,
+   * unboxed where the bean declares it primitive
+   * 
+   * @param o
+   *          item
+   * @param c
+   *          comparison
+   * @return outcome as {@link Comparison#test(Object)}
+   */
+  int compare (Object o, Comparison c) {
+    if (meter != null) meter.visit (1);
+    if (o instanceof Map || o instanceof Map.Entry) {
+      Object v = o instanceof Map ? value ((Map <?, ?>) o, c.name) : entry ((Map.Entry <?, ?>) o, c.name);
+      return v == UNDEFINED ? Comparison.UNKNOWN : c.test (v);
+    } else if (o instanceof JsonNode) {
+      JsonNode v = ((JsonNode) o).get (c.name);
+      return v == null ? Comparison.UNKNOWN
+                       : v.isIntegralNumber () && v.canConvertToLong () ? c.test (v.longValue ())
+                                                                         : v.isDouble () ? c.test (v.doubleValue ())
+                                                                                         : c.test (unwrap (v));
+    } else if (o == null || isArray (o)) return Comparison.UNKNOWN;
+    BeanType t = type (o.getClass ());
+    if (t.kind != Kind.BEAN) return Comparison.UNKNOWN;
+    int i = t.indexOf (c.name);
+    if (i < 0) return Comparison.UNKNOWN;
+    if (meter != null) meter.read ();
+    Object a = t.unboxed (i);
+    if (a instanceof BeanType.LongAccessor) return c.test (((BeanType.LongAccessor) a).get (o));
+    else if (a instanceof BeanType.DoubleAccessor) return c.test (((BeanType.DoubleAccessor) a).get (o));
+    else return c.test (deref (((BeanType.Accessor) a).get (o)));
+  }
+
+  /**
+   * Counts nodes visited on behalf of this fork, such as the elements of a
+   * sequence
+   * 
+   * @param n
+   *          number of nodes
+   */
+  void visit (int n) {
+    if (meter != null) meter.visit (n);
+  }
+
+  /**
+   * @param c
+   *          class
+   * @return metadata for the class under the current mapper configuration
+   */
+  BeanType type (Class <?> c) {
+    ObjectMapper m = getObjectMapper ();
+    Types t = types.get ();
+    if (t.config != m.getSerializationConfig () || t.factory != m.getSerializerFactory ())
+      types.set (t = new Types (m));
+    BeanType b = t.get (c);
+    if (b == null) {
+      BeanType e = t.putIfAbsent (c, b = new BeanType (c, m));
+      if (e != null) b = e;
+    }
+    return b;
+  }
+
+  /**
+   * @param c
+   *          class
+   * @return whether metadata for the class has been built under the current
+   *         mapper configuration
+   */
+  boolean known (Class <?> c) {
+    return types.get ().containsKey (c);
+  }
+
+  /**
+   * Builds metadata for every bean class reachable from a declared type ahead
+   * of the first evaluation
+   * 
+   * @param d
+   *          declared type
+   */
+  void warm (Type d) {
+    Set <Class <?>> v = new HashSet <> ();
+    for (Deque <JavaType> q = new ArrayDeque <> (singleton (getObjectMapper ().constructType (d))); !q.isEmpty ();) {
+      JavaType t = q.poll ();
+      if (t.isContainerType () || t.isReferenceType ()) q.add (t.getContentType ());
+      else if (t.hasRawClass (Optional.class) || t.hasRawClass (AtomicReference.class)) {
+        if (t.containedType (0) != null) q.add (t.containedType (0));
+      } else if (v.add (t.getRawClass ()) && !leaf (t.getRawClass ())) {
+        Class <?> c = t.getRawClass ();
+        if (c == Object.class || c.isInterface () || isAbstract (c.getModifiers ())) continue;
+        BeanType b = type (c);
+        if (b.kind == Kind.BEAN) {
+          subtrees (b);
+          for (BeanPropertyWriter w : b.properties)
+            q.add (w.getType ());
+        }
+      }
+    }
+  }
+
+  /**
+   * @param t
+   *          bean metadata
+   * @return property names whose subtree may contain a target
+   */
+  private List <String> pruned (BeanType t) {
+    List <String> k = pruned.get (t);
+    if (k == null) {
+      List <Set <String>> s = subtrees (t);
+      k = new ArrayList <> ();
+      for (int i = 0; i < s.size (); i++)
+        if (targets.contains (t.names.get (i)) || s.get (i) == null || !disjoint (s.get (i), targets))
+          k.add (t.names.get (i));
+      pruned.put (t, k);
+    }
+    return k;
+  }
+
+  /**
+   * @param t
+   *          bean metadata
+   * @return names that may appear below each property
+   */
+  private List <Set <String>> subtrees (BeanType t) {
+    List <Set <String>> s = t.subtrees;
+    if (s == null) {
+      s = new ArrayList <> ();
+      for (BeanPropertyWriter w : t.properties)
+        s.add (reach (w.getType ()));
+      t.subtrees = s = unmodifiableList (s);
+    }
+    return s;
+  }
+
+  /**
+   * @param j
+   *          declared type
+   * @return property names that may appear anywhere in a value of the type or
+   *         null if unbounded
+   */
+  private Set <String> reach (JavaType j) {
+    Set <String> n = new HashSet <> ();
+    Set <Class <?>> v = new HashSet <> ();
+    for (Deque <JavaType> q = new ArrayDeque <> (singleton (j)); !q.isEmpty ();) {
+      JavaType t = q.poll ();
+      if (t.isMapLikeType ()) return null;
+      else if (t.isContainerType () || t.isReferenceType ()) q.add (t.getContentType ());
+      else if (t.hasRawClass (Optional.class) || t.hasRawClass (AtomicReference.class)) {
+        if (t.containedType (0) == null) return null;
+        q.add (t.containedType (0));
+      } else if (v.add (t.getRawClass ()) && !leaf (t.getRawClass ())) {
+        Class <?> c = t.getRawClass ();
+        if (!isFinal (c.getModifiers ())) return null;
+        BeanType b = type (c);
+        if (b.kind == Kind.ARRAY || b.kind == Kind.MAP || b.kind == Kind.CUSTOM || b.generated != null) return null;
+        else if (b.kind == Kind.BEAN) {
+          n.addAll (b.names ());
+          for (BeanPropertyWriter w : b.properties)
+            q.add (w.getType ());
+        }
+      }
+    }
+    return n;
+  }
+
+  /**
+   * @param c
+   *          class
+   * @return whether values of the class serialize as scalars
+   */
+  private static boolean leaf (Class <?> c) {
+    return c.isPrimitive () || c.isEnum () || Number.class.isAssignableFrom (c) || Boolean.class == c
+           || Character.class == c || CharSequence.class.isAssignableFrom (c) || Date.class.isAssignableFrom (c)
+           || Calendar.class.isAssignableFrom (c) || TemporalAccessor.class.isAssignableFrom (c) || UUID.class == c;
+  }
+
+  /**
+   * Tree nodes are navigated as they are, value nodes are unwrapped to the
+   * scalars they serialize as
+   * 
+   * @param n
+   *          node
+   * @return container node or scalar
+   */
+  private static Object unwrap (JsonNode n) {
+    if (n == null || n.isNull () || n.isMissingNode ()) return null;
+    else if (n.isContainerNode ()) return n;
+    else if (n.isPojo ()) return ((POJONode) n).getPojo ();
+    else if (n.isNumber ()) return n.numberValue ();
+    else if (n.isBoolean ()) return n.booleanValue ();
+    else return n.asText ();
+  }
+
+  /**
+   * {@link Optional} and {@link AtomicReference} serialize as their contents
+   * and are navigated as such
+   * 
+   * @param v
+   *          value
+   * @return contents of a reference, the value itself otherwise
+   */
+  private static Object deref (Object v) {
+    for (;;)
+      if (v instanceof Optional) v = ((Optional <?>) v).orElse (null);
+      else if (v instanceof AtomicReference) v = ((AtomicReference <?>) v).get ();
+      else return v;
+  }
+
+  /**
+   * @param m
+   *          map
+   * @return property names, keys other than strings named as by
+   *         {@link #name(Object)}
+   */
+  @SuppressWarnings ("unchecked")
+  private Collection <String> keys (Map <?, ?> m) {
+    if (m.isEmpty () || keyType (m) == String.class) return (Collection <String>) m.keySet ();
+    List <String> k = new ArrayList <> (m.size ());
+    for (Object e : m.keySet ())
+      k.add (name (e));
+    return k;
+  }
+
+  /**
+   * Looks a property up without converting the map; keys other than strings
+   * are parsed back into the type of the map's keys where it is known, found
+   * by name otherwise
+   * 
+   * @param m
+   *          map
+   * @param k
+   *          property name
+   * @return value or {@link #UNDEFINED}
+   */
+  private Object value (Map <?, ?> m, String k) {
+    if (m.isEmpty ()) return UNDEFINED;
+    Class <?> t = keyType (m);
+    Object n;
+    if (t == String.class) n = k;
+    else try {
+      if (t == Integer.class) n = Integer.valueOf (k);
+      else if (t == Long.class) n = Long.valueOf (k);
+      else if (t == Short.class) n = Short.valueOf (k);
+      else if (t == Byte.class) n = Byte.valueOf (k);
+      else if (t == Boolean.class) n = "true".equals (k) ? TRUE : "false".equals (k) ? FALSE : null;
+      else if (t == Character.class) n = k.length () == 1 ? k.charAt (0) : null;
+      else if (t == UUID.class) n = UUID.fromString (k);
+      else if (t != null && t.isEnum ()) n = constant (t, k);
+      else {
+        for (Map.Entry <?, ?> e : m.entrySet ())
+          if (name (e.getKey ()).equals (k)) return deref (e.getValue ());
+        return UNDEFINED;
+      }
+      if (n == null || !name (n).equals (k)) return UNDEFINED;
+    } catch (IllegalArgumentException e) {
+      return UNDEFINED;
+    }
+    Object v = m.get (n);
+    return v == null && !m.containsKey (n) ? UNDEFINED : deref (v);
+  }
+
+  /**
+   * @param e
+   *          map entry, serialized as an object with a single property
+   * @param k
+   *          property name
+   * @return value or {@link #UNDEFINED}
+   */
+  private static Object entry (Map.Entry <?, ?> e, String k) {
+    return name (e.getKey ()).equals (k) ? deref (e.getValue ()) : UNDEFINED;
+  }
+
+  /**
+   * @param m
+   *          non empty map
+   * @return class of the first key that is not null, the declaring class for
+   *         enums, null if there is none; memoized by forks
+   */
+  private Class <?> keyType (Map <?, ?> m) {
+    Object t = trees == null ? null : trees.get (m);
+    if (t == null) {
+      t = Void.class;
+      for (Object k : m.keySet ())
+        if (k != null) {
+          t = k instanceof Enum ? ((Enum <?>) k).getDeclaringClass () : k.getClass ();
+          break;
+        }
+      if (trees != null) trees.put (m, t);
+    }
+    return t == Void.class ? null : (Class <?>) t;
+  }
+
+  /**
+   * @param t
+   *          enum class
+   * @param k
+   *          constant name
+   * @return constant or null
+   */
+  private static Object constant (Class <?> t, String k) {
+    for (Object e : t.getEnumConstants ())
+      if (((Enum <?>) e).name ().equals (k)) return e;
+    return null;
+  }
+
+  /**
+   * @param k
+   *          map key
+   * @return property name of the key, enums by name and anything else as its
+   *         string representation
+   */
+  private static String name (Object k) {
+    return k instanceof Enum ? ((Enum <?>) k).name () : String.valueOf (k);
+  }
+
+  /**
+   * @param o
+   *          collection that is not a list or other iterable
+   * @return elements in iteration order, memoized by forks
+   */
+  private List <?> elements (Object o) {
+    Object t = trees == null ? null : trees.get (o);
+    if (t == null) {
+      if (o instanceof Collection) t = asList (((Collection <?>) o).toArray ());
+      else {
+        List <Object> l = new ArrayList <> ();
+        ((Iterable <?>) o).forEach (l::add);
+        t = l;
+      }
+      if (trees != null) trees.put (o, t);
+    }
+    return (List <?>) t;
+  }
+
+  /**
+   * @param v
+   *          value
+   * @return value as a tree node
+   */
+  private JsonNode tree (Object v) {
+    return v instanceof JsonNode ? (JsonNode) v : getObjectMapper ().valueToTree (v);
   }
 
   /**
+   * Serializes the object into a {@link TokenBuffer} and reads it back as a
+   * {@link BufferedTree}, objects and arrays become maps and lists only as the
+   * path reaches them
+   * 
    * @param o
-   *          object
-   * @return map of property name to property value supplier
+   *          object with a custom serializer
+   * @return map representation, empty if the object does not serialize as an
+   *         object
    */
-  private Map <String, Supplier <Object>> propertySuppliers (Object o) {
-    try {
+  @SuppressWarnings ("unchecked")
+  private Map <String, Object> convert (Object o) {
+    Object t = trees == null ? null : trees.get (o);
+    if (t == null) {
       ObjectMapper m = getObjectMapper ();
-      JsonSerializer <?> j = m.getSerializerFactory ().createSerializer (m.getSerializerProviderInstance (),
-                                                                         m.constructType (o.getClass ()));
-      if (j instanceof BeanSerializer) {
-        Stream <BeanProperty> s = stream (spliteratorUnknownSize (((BeanSerializer) j).properties (), IMMUTABLE), true);
-        return s.collect (toMap (p -> p.getName (), p -> () -> {
-          try {
-            return ((BeanPropertyWriter) p).get (o);
-          } catch (Exception e) {
-            throw new InvalidJsonException (e);
-          }
-        }));
-      } else {
-        @SuppressWarnings ("unchecked") Map <String, Object> v = m.convertValue (o, Map.class);
-        return v.keySet ().stream ().collect (toMap (k -> k, k -> () -> v.get (k)));
+      TokenBuffer b = new TokenBuffer (m, false);
+      try {
+        m.writeValue (b, o);
+        t = BufferedTree.read (b, m);
+      } catch (IOException e) {
+        throw new InvalidJsonException (e);
       }
-    } catch (JsonMappingException e) {
-      throw new InvalidJsonException (e);
+      if (trees != null) trees.put (o, t);
+    }
+    return t instanceof Map ? (Map <String, Object>) t : emptyMap ();
+  }
+
+  /**
+   * Class metadata valid for one mapper configuration
+   */
+  private static final class Types extends ConcurrentHashMap <Class <?>, BeanType> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Configuration the metadata was built for
+     */
+    final SerializationConfig config;
+    /**
+     * Serializer factory the metadata was built for
+     */
+    final SerializerFactory factory;
+
+    /**
+     * @param m
+     *          mapper
+     */
+    Types (ObjectMapper m) {
+      config = m.getSerializationConfig ();
+      factory = m.getSerializerFactory ();
     }
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+/**
+ * Property table of a bean class, generated at compile time for classes
+ * annotated with {@link JsonPathAccessible} and discovered through
+ * {@link java.util.ServiceLoader}. {@link JacksonBeanJsonProvider} uses it in
+ * place of introspection as long as the mapper names properties as Jackson
+ * does by default: no naming strategy, mix-in, visibility change or
+ * alternative annotation introspector
+ * 
+ * @author levk
+ */
+public interface JsonPathAccessors {
+
+  /**
+   * @return bean class
+   */
+  Class <?> type ();
+
+  /**
+   * @return property names in serialization order
+   */
+  String[] names ();
+
+  /**
+   * @param o
+   *          bean
+   * @param i
+   *          property position in {@link #names()}
+   * @return property value
+   */
+  Object get (Object o, int i);
+}
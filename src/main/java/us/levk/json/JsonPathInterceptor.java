@@ -26,26 +26,57 @@
 package us.levk.json;
 
 import static com.jayway.jsonpath.Configuration.builder;
-import static com.jayway.jsonpath.JsonPath.parse;
-import static java.util.Optional.ofNullable;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.ConcurrentHashMap.newKeySet;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Stream.of;
+import static javax.ws.rs.core.HttpHeaders.ACCEPT;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.HttpHeaders.ETAG;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
+import static javax.ws.rs.core.HttpHeaders.VARY;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
 import static javax.ws.rs.core.MediaType.WILDCARD;
+import static javax.ws.rs.core.MediaType.WILDCARD_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
 import javax.ws.rs.ext.Providers;
 import javax.ws.rs.ext.WriterInterceptor;
 import javax.ws.rs.ext.WriterInterceptorContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.spi.json.JsonProvider;
 
+import us.levk.json.Selector.Kind;
+
 /**
  * JAX-RS response jsonpath filter
  * 
@@ -53,7 +84,47 @@ import com.jayway.jsonpath.spi.json.JsonProvider;
  */
 @Provider
 @Produces (WILDCARD)
-public class JsonPathInterceptor implements WriterInterceptor {
+public class JsonPathInterceptor implements WriterInterceptor, ContainerResponseFilter {
+
+  /**
+   * Request property marking the path as applied, error responses raised
+   * during evaluation are written through the interceptor again and must be
+   * left alone
+   */
+  static final String APPLIED = JsonPathInterceptor.class.getName () + ".applied";
+  /**
+   * Request property holding paths compiled at deployment by
+   * {@link JsonPathProjections}, keyed by normalized expression
+   */
+  static final String PRECOMPILED = JsonPathInterceptor.class.getName () + ".precompiled";
+  /**
+   * Request property holding the paths compiled during validation
+   */
+  static final String COMPILED = JsonPathInterceptor.class.getName () + ".compiled";
+  /**
+   * Request property holding the nanoseconds spent compiling during validation,
+   * set only if a {@link JsonPathListener} is resolvable
+   */
+  static final String COMPILE_TIME = JsonPathInterceptor.class.getName () + ".compileTime";
+  /**
+   * Request property holding the return type of the method declaring a
+   * {@link JsonPathProjection}
+   */
+  static final String DECLARED = JsonPathInterceptor.class.getName () + ".declared";
+  /**
+   * Request property holding the provider {@link JsonPathProjections} warmed
+   * for the declared type at deployment, used in place of the default provider
+   */
+  static final String WARMED = JsonPathInterceptor.class.getName () + ".warmed";
+
+  /**
+   * Path request header
+   */
+  static final String JSONPATH = "JSONPath";
+  /**
+   * Timing response header
+   */
+  private static final String SERVER_TIMING = "Server-Timing";
 
   /**
    * Providers
@@ -63,6 +134,113 @@ public class JsonPathInterceptor implements WriterInterceptor {
    * Request headers
    */
   private @Context HttpHeaders headers;
+  /**
+   * Request URI
+   */
+  private @Context UriInfo uris;
+  /**
+   * Compiled paths, used unless a {@link PathCache} is resolvable
+   */
+  private final PathCache paths = new PathCache ();
+  /**
+   * Path validation, used unless a {@link PathLimits} is resolvable
+   */
+  private final PathLimits limits = new PathLimits ();
+  /**
+   * Provider used unless a {@link JsonProvider} or {@link ObjectMapper} is
+   * resolvable, kept so bean metadata outlives the request
+   */
+  private final JacksonBeanJsonProvider fallback = new JacksonBeanJsonProvider (new ObjectMapper ());
+  /**
+   * Return types of methods declaring a {@link JsonPathProjection} seen so far,
+   * warmed on every bean provider a setup resolves
+   */
+  private final Set <Type> declared = newKeySet ();
+  /**
+   * Provider, mapper and configuration by response media type
+   */
+  private final Map <MediaType, Setup> setups = new ConcurrentHashMap <> ();
+
+  /**
+   * Provider, mapper and configuration resolved for a media type
+   * 
+   * @author levk
+   */
+  private static final class Setup {
+    /**
+     * Resolved provider, null if none
+     */
+    private final JsonProvider resolved;
+    /**
+     * Provider to evaluate with
+     */
+    private final JsonProvider provider;
+    /**
+     * Mapper to read and write with
+     */
+    private final ObjectMapper mapper;
+    /**
+     * Configuration over the provider
+     */
+    private final Configuration configuration;
+
+    /**
+     * @param p
+     *          resolved provider, null if none
+     * @param m
+     *          resolved mapper, null if none
+     * @param d
+     *          default provider
+     * @param w
+     *          declared types to warm a resolved bean provider for
+     */
+    private Setup (JsonProvider p, ObjectMapper m, JacksonBeanJsonProvider d, Set <Type> w) {
+      resolved = p;
+      provider = p != null ? p : m == null ? d : new JacksonBeanJsonProvider (m);
+      mapper = m == null ? d.getObjectMapper () : m;
+      configuration = builder ().jsonProvider (provider).build ();
+      if (provider instanceof JacksonBeanJsonProvider && provider != d) for (Type t : w)
+        ((JacksonBeanJsonProvider) provider).warm (t);
+    }
+  }
+
+  /**
+   * Builds bean metadata for the return type of a method declaring a
+   * projection on the resolved bean providers, the first time the type is seen;
+   * setups resolved later warm it as they are made
+   * 
+   * @param t
+   *          declared type
+   */
+  private void declare (Type t) {
+    if (declared.add (t)) for (Setup s : setups.values ())
+      if (s.provider instanceof JacksonBeanJsonProvider && s.provider != fallback)
+        ((JacksonBeanJsonProvider) s.provider).warm (t);
+  }
+
+  /**
+   * Forgets the providers, mappers and configurations resolved so far, the
+   * next filtered response resolves them again
+   */
+  public void refresh () {
+    setups.clear ();
+  }
+
+  /**
+   * @param m
+   *          media type
+   * @return provider, mapper and configuration for the media type
+   */
+  private Setup setup (MediaType m) {
+    MediaType k = m == null ? WILDCARD_TYPE : m;
+    Setup s = setups.get (k);
+    if (s == null) {
+      Setup n = new Setup (resolve (m, JsonProvider.class).orElse (null), resolve (m, ObjectMapper.class).orElse (null),
+                           fallback, declared);
+      if ((s = setups.putIfAbsent (k, n)) == null) s = n;
+    }
+    return s;
+  }
 
   /**
    * @param q
@@ -72,22 +250,365 @@ public class JsonPathInterceptor implements WriterInterceptor {
    * @return instance
    */
   private <T> Optional <T> resolve (WriterInterceptorContext c, Class <T> t) {
-    return of (c.getMediaType(), null).map (m -> providers.getContextResolver (t, m)).filter (r -> {
+    return resolve (c.getMediaType (), t);
+  }
+
+  /**
+   * @param m
+   *          media type
+   * @param t
+   *          type
+   * @return instance
+   */
+  private <T> Optional <T> resolve (MediaType m, Class <T> t) {
+    return of (m, null).map (n -> providers.getContextResolver (t, n)).filter (r -> {
       return r != null;
     }).findFirst ().map (r -> r.getContext (t));
   }
 
+  /*
+   * (non-Javadoc)
+   * @see javax.ws.rs.container.ContainerResponseFilter#filter(javax.ws.rs.container.ContainerRequestContext, javax.ws.rs.container.ContainerResponseContext)
+   */
+  @Override
+  public void filter (ContainerRequestContext q, ContainerResponseContext r) throws IOException {
+    List <String> j = split (q.getHeaders ().get (JSONPATH));
+    if (!r.hasEntity () || !applies (j) || q.getProperty (APPLIED) != null) return;
+    String v = validate (q, r.getMediaType (), j);
+    if (v != null) {
+      q.setProperty (APPLIED, j);
+      r.setStatus (BAD_REQUEST.getStatusCode ());
+      r.getHeaders ().remove (ETAG);
+      r.setEntity (v, r.getEntityAnnotations (), TEXT_PLAIN_TYPE);
+      return;
+    } else if (r.getStatus () != 200) return;
+    ResponseCache k = resolve (r.getMediaType (), ResponseCache.class).orElse (null);
+    MediaType b = k == null ? null : output (r.getMediaType (), q.getAcceptableMediaTypes ());
+    ResponseCache.Key y = k == null ? null : k.key (r.getEntity (), r.getHeaders ().getFirst (ETAG),
+                                                   q.getUriInfo ().getRequestUri (), b, j);
+    ResponseCache.Entry e = y == null ? null : k.get (y);
+    if (e != null) {
+      q.setProperty (APPLIED, j);
+      if (json (r.getMediaType ()) && resolve (r.getMediaType (), BinaryOutput.class).isPresent ())
+        vary (r.getHeaders ());
+      r.getHeaders ().putSingle (ETAG, e.tag);
+      if (matches (q.getHeaderString (IF_NONE_MATCH), e.tag)) {
+        r.setStatus (NOT_MODIFIED.getStatusCode ());
+        r.setEntity (null);
+      } else r.setEntity ((StreamingOutput) e::write, r.getEntityAnnotations (), b);
+    }
+  }
+
+  /**
+   * Checks the paths against the limits and compiles them ahead of evaluation
+   * 
+   * @param q
+   *          request
+   * @param m
+   *          media type
+   * @param j
+   *          paths
+   * @return reason to refuse the request, null if the paths are valid
+   */
+  private String validate (ContainerRequestContext q, MediaType m, List <String> j) {
+    PathLimits g = resolve (m, PathLimits.class).orElse (limits);
+    String v = g.check (j);
+    if (v != null) return v;
+    PathCache c = resolve (m, PathCache.class).orElse (paths);
+    @SuppressWarnings ("unchecked") Map <String, PathCache.Entry> w = (Map <String, PathCache.Entry>) q.getProperty (PRECOMPILED);
+    long s = resolve (m, JsonPathListener.class).isPresent () ? nanoTime () : 0;
+    List <PathCache.Entry> e = new ArrayList <> (j.size ());
+    for (String k : j)
+      try {
+        e.add (entry (c, w, k));
+      } catch (InvalidPathException x) {
+        return g.malformed (k);
+      }
+    q.setProperty (COMPILED, e);
+    if (s != 0) q.setProperty (COMPILE_TIME, nanoTime () - s);
+    return null;
+  }
+
+  /**
+   * @param c
+   *          path cache
+   * @param w
+   *          paths precompiled at deployment, may be null
+   * @param k
+   *          path
+   * @return compiled path
+   */
+  private static PathCache.Entry entry (PathCache c, Map <String, PathCache.Entry> w, String k) {
+    PathCache.Entry y = w == null ? null : w.get (PathCache.normalize (k));
+    return y == null ? c.entry (k) : y;
+  }
+
   /*
    * (non-Javadoc)
    * @see javax.ws.rs.ext.WriterInterceptor#aroundWriteTo(javax.ws.rs.ext.WriterInterceptorContext)
    */
   @Override
   public void aroundWriteTo (WriterInterceptorContext c) throws IOException, WebApplicationException {
-    ofNullable (headers.getHeaderString ("JSONPath")).filter (j -> !"$..*".equals (j)).ifPresent (j -> {
-      c.setEntity (parse (c.getEntity (), builder ().jsonProvider (resolve (c, JsonProvider.class).orElseGet ( () -> {
-        return new JacksonBeanJsonProvider (resolve (c, ObjectMapper.class).orElseGet (ObjectMapper::new));
-      })).build ()).read ((String) j));
-    });
-    c.proceed ();
+    List <String> j = split (headers.getRequestHeader (JSONPATH));
+    if (applies (j) && c.getProperty (APPLIED) == null) {
+      c.setProperty (APPLIED, j);
+      try {
+        write (c, j);
+      } catch (RuntimeException x) {
+        resolve (c, PathLimits.class).orElse (limits).failed ();
+        throw x;
+      }
+    } else c.proceed ();
+  }
+
+  /**
+   * Writes the filtered entity, through the response cache if resolvable
+   * 
+   * @param c
+   *          context
+   * @param j
+   *          paths
+   * @throws IOException
+   *           on write failure
+   */
+  private void write (WriterInterceptorContext c, List <String> j) throws IOException {
+    ResponseCache k = resolve (c, ResponseCache.class).orElse (null);
+    ResponseCache.Key y = k == null ? null
+                                    : k.key (c.getEntity (), c.getHeaders ().getFirst (ETAG), uris.getRequestUri (),
+                                             output (c.getMediaType (), headers.getAcceptableMediaTypes ()), j);
+    if (y == null) filter (c, j);
+    else {
+      OutputStream o = c.getOutputStream ();
+      ByteArrayOutputStream b = new ByteArrayOutputStream ();
+      c.setOutputStream (b);
+      filter (c, j);
+      c.setOutputStream (o);
+      ResponseCache.Entry e = k.put (y, b.toByteArray ());
+      if (e != null) c.getHeaders ().putSingle (ETAG, e.tag);
+      b.writeTo (o);
+    }
+  }
+
+  /**
+   * Applies the paths and writes the result
+   * 
+   * @param c
+   *          context
+   * @param j
+   *          paths
+   * @throws IOException
+   *           on write failure
+   */
+  private void filter (WriterInterceptorContext c, List <String> j) throws IOException {
+    JsonPathListener l = resolve (c, JsonPathListener.class).orElse (null);
+    long s = l == null ? 0 : nanoTime ();
+    @SuppressWarnings ("unchecked") List <PathCache.Entry> e = (List <PathCache.Entry>) c.getProperty (COMPILED);
+    if (e == null) {
+      PathCache q = resolve (c, PathCache.class).orElse (paths);
+      @SuppressWarnings ("unchecked") Map <String, PathCache.Entry> w = (Map <String, PathCache.Entry>) c.getProperty (PRECOMPILED);
+      e = new ArrayList <> (j.size ());
+      for (String k : j)
+        e.add (entry (q, w, k));
+    }
+    long t = l == null ? 0 : nanoTime ();
+    Long k = (Long) c.getProperty (COMPILE_TIME);
+    if (k != null) s -= k;
+    Budget b = resolve (c, Budget.class).orElse (null);
+    Meter r = b != null ? b.start () : l != null ? new Meter (null) : null;
+    boolean h = l != null && l.serverTiming ();
+    Selector x = e.size () == 1 ? e.get (0).selector () : null;
+    Object o = c.getEntity ();
+    BinaryOutput i = resolve (c, BinaryOutput.class).orElse (null);
+    MediaType u = i == null || !json (c.getMediaType ()) ? null : i.negotiate (headers.getAcceptableMediaTypes ());
+    if (i != null && json (c.getMediaType ())) vary (c.getHeaders ());
+    Setup y = setup (c.getMediaType ());
+    Type w = (Type) c.getProperty (DECLARED);
+    if (w != null) declare (w);
+    if (RawProjection.raw (o) && json (c.getMediaType ())) {
+      if (u == null && RawProjection.supports (x)) {
+        if (h) timing (c, t - s, -1);
+        RawProjection.write (o, x, y.mapper, c.getOutputStream ());
+        if (l != null) l.evaluated (j.get (0), t - s, nanoTime () - t, -1, -1, -1);
+        return;
+      }
+      o = RawProjection.tree (o, y.mapper);
+    }
+    boolean n = SequenceProjection.sequence (o);
+    if (y.resolved == null && o != null && !n && u == null && json (c.getMediaType ()) && StreamingProjection.supports (x)) {
+      Optional <StreamingProjection> z = resolve (c, StreamingProjection.class);
+      if (z.isPresent ()) {
+        if (h) timing (c, t - s, -1);
+        h = false;
+        if (z.get ().write (o, x, y.mapper, c.getOutputStream ())) {
+          if (l != null) l.evaluated (j.get (0), t - s, nanoTime () - t, -1, -1, -1);
+          return;
+        }
+      }
+    }
+    JsonProvider p = y.provider == fallback && c.getProperty (WARMED) != null ? (JsonProvider) c.getProperty (WARMED)
+                                                                            : y.provider;
+    boolean d = p.getClass () == JacksonBeanJsonProvider.class;
+    Configuration f = d ? y.configuration.jsonProvider (((JacksonBeanJsonProvider) p).fork (x == null ? null : x.scanned (), r))
+                        : y.configuration;
+    if (r != null) f = f.addEvaluationListeners (r);
+    if (n && u == null && json (c.getMediaType ()) && SequenceProjection.supports (x)) {
+      if (h) timing (c, t - s, -1);
+      SequenceProjection.write (o, x, new PathTrie (j, e, null), y.mapper, f, c.getOutputStream ());
+      if (l != null) l.evaluated (j.get (0), t - s, nanoTime () - t, d ? r.visited () : -1, d ? r.reads () : -1, r.found ());
+      return;
+    } else if (n) o = SequenceProjection.list (o);
+    Parallelism a = resolve (c, Parallelism.class).orElse (null);
+    Object v;
+    if (e.size () > 1) v = new PathTrie (j, e, a).read (o, f);
+    else if (PathTrie.supports (x) && (x.has (Kind.FILTER) || (a != null && x.has (Kind.WILDCARD))))
+      v = new PathTrie (j, e, a).read (o, f).get (j.get (0));
+    else v = e.get (0).path.read (o, f);
+    if (l != null) {
+      long g = nanoTime () - t;
+      l.evaluated (String.join (",", j), t - s, g, d ? r.visited () : -1, d ? r.reads () : -1, r.found ());
+      if (h) timing (c, t - s, g);
+    }
+    if (u == null) {
+      entity (c, v);
+      c.proceed ();
+    } else {
+      c.setMediaType (u);
+      c.getHeaders ().putSingle (CONTENT_TYPE, u);
+      i.writer (y.mapper, v == null ? Object.class : v.getClass (), u).writeValue (c.getOutputStream (), v);
+    }
+  }
+
+  /**
+   * @param m
+   *          response media type
+   * @param a
+   *          acceptable media types
+   * @return media type of the filtered output
+   */
+  private MediaType output (MediaType m, List <MediaType> a) {
+    BinaryOutput b = json (m) ? resolve (m, BinaryOutput.class).orElse (null) : null;
+    MediaType u = b == null ? null : b.negotiate (a);
+    return u == null ? m : u;
+  }
+
+  /**
+   * Marks the response as negotiated on {@code Accept}, caches must not serve
+   * a binary encoding to a client that asked for JSON or the other way round
+   * 
+   * @param h
+   *          response headers
+   */
+  private static void vary (MultivaluedMap <String, Object> h) {
+    List <Object> v = h.get (VARY);
+    if (v != null) for (Object o : v)
+      for (String n : String.valueOf (o).split (","))
+        if (ACCEPT.equalsIgnoreCase (n.trim ()) || "*".equals (n.trim ())) return;
+    h.add (VARY, ACCEPT);
+  }
+
+  /**
+   * @param j
+   *          paths
+   * @return whether to filter
+   */
+  private static boolean applies (List <String> j) {
+    return !j.isEmpty () && !(j.size () == 1 && "$..*".equals (j.get (0)));
+  }
+
+  /**
+   * @param h
+   *          {@code If-None-Match} header
+   * @param t
+   *          entity tag
+   * @return whether the header matches the tag, weakly
+   */
+  static boolean matches (String h, String t) {
+    if (h != null) for (String v : h.split (",")) {
+      v = v.trim ();
+      if ("*".equals (v) || (v.startsWith ("W/") ? v.substring (2) : v).equals (t)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Several paths may be given as repeated headers or separated by commas
+   * outside of brackets, parentheses and quotes
+   * 
+   * @param h
+   *          header values
+   * @return paths
+   */
+  static List <String> split (List <String> h) {
+    List <String> p = new ArrayList <> ();
+    if (h != null) for (String v : h) {
+      int d = 0, f = 0;
+      char q = 0;
+      for (int i = 0; i < v.length (); i++) {
+        char c = v.charAt (i);
+        if (q != 0) {
+          if (c == '\\') i++;
+          else if (c == q) q = 0;
+        } else if (c == '\'' || c == '"') q = c;
+        else if (c == '[' || c == '(') d++;
+        else if (c == ']' || c == ')') d--;
+        else if (c == ',' && d == 0) {
+          p.add (v.substring (f, i).trim ());
+          f = i + 1;
+        }
+      }
+      p.add (v.substring (f).trim ());
+    }
+    p.removeIf (String::isEmpty);
+    return p;
+  }
+
+  /**
+   * Replaces the entity, the declared type is reset to {@link Object} so that
+   * writers do not attempt to serialize the result as the original entity type
+   * yet a JSON writer is still selected for scalar results
+   * 
+   * @param c
+   *          context
+   * @param e
+   *          entity
+   */
+  private static void entity (WriterInterceptorContext c, Object e) {
+    c.setEntity (e);
+    c.setType (Object.class);
+    c.setGenericType (Object.class);
+  }
+
+  /**
+   * Adds the {@code Server-Timing} header
+   * 
+   * @param c
+   *          context
+   * @param p
+   *          compile nanoseconds
+   * @param e
+   *          evaluation nanoseconds, negative if not known
+   */
+  private static void timing (WriterInterceptorContext c, long p, long e) {
+    String h = "jsonpath-compile;dur=" + millis (p);
+    c.getHeaders ().add (SERVER_TIMING, e < 0 ? h : h + ", jsonpath-eval;dur=" + millis (e));
+  }
+
+  /**
+   * @param n
+   *          nanoseconds
+   * @return milliseconds with microsecond precision
+   */
+  private static String millis (long n) {
+    return BigDecimal.valueOf (NANOSECONDS.toMicros (n), 3).toPlainString ();
+  }
+
+  /**
+   * @param m
+   *          media type
+   * @return whether the media type is JSON
+   */
+  private static boolean json (MediaType m) {
+    return m != null && (APPLICATION_JSON_TYPE.isCompatible (m) && !m.isWildcardSubtype ()
+                         || m.getSubtype ().endsWith ("+json"));
   }
 }
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+/**
+ * Receives measurements of every filtered response, supply an implementation
+ * via a {@link javax.ws.rs.ext.ContextResolver} to enable; nothing is measured
+ * otherwise. Called on the request thread, implementations must be thread safe
+ * and cheap
+ * 
+ * @author levk
+ */
+public interface JsonPathListener {
+
+  /**
+   * @param path
+   *          path expression as requested
+   * @param compile
+   *          nanoseconds spent looking up or compiling the path
+   * @param evaluation
+   *          nanoseconds spent evaluating the path
+   * @param nodes
+   *          nodes visited, -1 if not known
+   * @param reads
+   *          bean properties read, -1 if not known
+   * @param results
+   *          results found, -1 if not known
+   */
+  void evaluated (String path, long compile, long evaluation, long nodes, long reads, long results);
+
+  /**
+   * @return whether to add a {@code Server-Timing} response header with the
+   *         compile and evaluation times
+   */
+  default boolean serverTiming () {
+    return false;
+  }
+}
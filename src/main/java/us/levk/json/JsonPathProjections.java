@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Binds {@link JsonPathProjection} declarations at deployment: declared paths
+ * are compiled once, bean metadata of the method's return type is built for
+ * this feature's default provider, and for the providers the interceptor
+ * resolves once the method is first requested, and a request filter applies
+ * the default path and rejects paths that are not allowed with 400 Bad Request
+ * before anything is compiled
+ * 
+ * @author levk
+ */
+@Provider
+public class JsonPathProjections implements DynamicFeature {
+
+  /**
+   * Provider the declaring methods' return types are warmed on, evaluates
+   * their responses unless a {@link com.jayway.jsonpath.spi.json.JsonProvider}
+   * or {@link ObjectMapper} is resolvable
+   */
+  private final JacksonBeanJsonProvider provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * javax.ws.rs.container.DynamicFeature#configure(javax.ws.rs.container.
+   * ResourceInfo, javax.ws.rs.core.FeatureContext)
+   */
+  @Override
+  public void configure (ResourceInfo r, FeatureContext f) {
+    Method m = r.getResourceMethod ();
+    JsonPathProjection p = m.getAnnotation (JsonPathProjection.class);
+    if (p == null) p = r.getResourceClass ().getAnnotation (JsonPathProjection.class);
+    if (p == null) return;
+    Map <String, PathCache.Entry> c = new HashMap <> ();
+    for (String s : p.allowed ())
+      compile (c, s);
+    if (!p.value ().isEmpty ()) compile (c, p.value ());
+    Type t = m.getGenericReturnType ();
+    provider.warm (t);
+    f.register (new Declared (p.value (), p.allowed ().length > 0, Collections.unmodifiableMap (c), t, provider));
+  }
+
+  /**
+   * @param c
+   *          compiled paths
+   * @param p
+   *          path expression
+   * @throws com.jayway.jsonpath.InvalidPathException
+   *           if the expression does not compile
+   */
+  private static void compile (Map <String, PathCache.Entry> c, String p) {
+    String k = PathCache.normalize (p);
+    PathCache.Entry e = new PathCache.Entry (k, JsonPath.compile (k));
+    e.selector ();
+    c.put (k, e);
+  }
+
+  /**
+   * Request filter bound to a declaring method
+   */
+  private static final class Declared implements ContainerRequestFilter {
+    /**
+     * Default path, empty for none
+     */
+    private final String path;
+    /**
+     * Whether only declared paths are allowed
+     */
+    private final boolean restricted;
+    /**
+     * Declared paths by normalized expression
+     */
+    private final Map <String, PathCache.Entry> paths;
+    /**
+     * Return type of the declaring method
+     */
+    private final Type type;
+    /**
+     * Provider warmed for the return type
+     */
+    private final JacksonBeanJsonProvider provider;
+
+    /**
+     * @param p
+     *          default path
+     * @param r
+     *          whether only declared paths are allowed
+     * @param c
+     *          declared paths
+     * @param t
+     *          return type of the declaring method
+     * @param w
+     *          provider warmed for the return type
+     */
+    Declared (String p, boolean r, Map <String, PathCache.Entry> c, Type t, JacksonBeanJsonProvider w) {
+      path = p;
+      restricted = r;
+      paths = c;
+      type = t;
+      provider = w;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * javax.ws.rs.container.ContainerRequestFilter#filter(javax.ws.rs.container.
+     * ContainerRequestContext)
+     */
+    @Override
+    public void filter (ContainerRequestContext q) {
+      List <String> j = JsonPathInterceptor.split (q.getHeaders ().get (JsonPathInterceptor.JSONPATH));
+      if (j.isEmpty () && !path.isEmpty ()) q.getHeaders ().putSingle (JsonPathInterceptor.JSONPATH, path);
+      else if (restricted) for (String s : j)
+        if (!paths.containsKey (PathCache.normalize (s))) {
+          q.setProperty (JsonPathInterceptor.APPLIED, j);
+          q.abortWith (Response.status (BAD_REQUEST).type (TEXT_PLAIN_TYPE).entity ("JSONPath not allowed: " + s)
+                               .build ());
+          return;
+        }
+      q.setProperty (JsonPathInterceptor.PRECOMPILED, paths);
+      q.setProperty (JsonPathInterceptor.DECLARED, type);
+      q.setProperty (JsonPathInterceptor.WARMED, provider);
+    }
+  }
+}
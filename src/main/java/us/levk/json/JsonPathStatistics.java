@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Default {@link JsonPathListener} aggregating histograms, publish them with
+ * {@link #register()}
+ * 
+ * @author levk
+ */
+public class JsonPathStatistics implements JsonPathListener, JsonPathStatisticsMXBean {
+
+  /**
+   * Default object name
+   */
+  public static final String NAME = "us.levk.json:type=JsonPathStatistics";
+
+  /**
+   * Histograms
+   */
+  private final Histogram compile = new Histogram (), evaluation = new Histogram (), nodes = new Histogram (),
+      reads = new Histogram (), results = new Histogram ();
+  /**
+   * Whether to add the Server-Timing header
+   */
+  private final boolean timing;
+
+  /**
+   * @param t
+   *          whether to add a {@code Server-Timing} response header
+   */
+  public JsonPathStatistics (boolean t) {
+    timing = t;
+  }
+
+  public JsonPathStatistics () {
+    this (false);
+  }
+
+  /**
+   * Registers with the platform MBean server under {@value #NAME}
+   * 
+   * @return this
+   * @throws JMException
+   *           if registration fails
+   */
+  public JsonPathStatistics register () throws JMException {
+    return register (new ObjectName (NAME));
+  }
+
+  /**
+   * @param n
+   *          object name
+   * @return this
+   * @throws JMException
+   *           if registration fails
+   */
+  public JsonPathStatistics register (ObjectName n) throws JMException {
+    getPlatformMBeanServer ().registerMBean (this, n);
+    return this;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see us.levk.json.JsonPathListener#evaluated(java.lang.String, long, long,
+   * long, long, long)
+   */
+  @Override
+  public void evaluated (String p, long c, long e, long n, long r, long s) {
+    compile.record (NANOSECONDS.toMicros (c));
+    evaluation.record (NANOSECONDS.toMicros (e));
+    nodes.record (n);
+    reads.record (r);
+    results.record (s);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see us.levk.json.JsonPathListener#serverTiming()
+   */
+  @Override
+  public boolean serverTiming () {
+    return timing;
+  }
+
+  @Override
+  public Histogram getCompileTime () {
+    return compile;
+  }
+
+  @Override
+  public Histogram getEvaluationTime () {
+    return evaluation;
+  }
+
+  @Override
+  public Histogram getNodes () {
+    return nodes;
+  }
+
+  @Override
+  public Histogram getReads () {
+    return reads;
+  }
+
+  @Override
+  public Histogram getResults () {
+    return results;
+  }
+}
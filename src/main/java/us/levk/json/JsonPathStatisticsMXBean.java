@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+/**
+ * Management interface of {@link JsonPathStatistics}, times are in
+ * microseconds
+ * 
+ * @author levk
+ */
+public interface JsonPathStatisticsMXBean {
+
+  /**
+   * @return path lookup and compile times
+   */
+  Histogram getCompileTime ();
+
+  /**
+   * @return evaluation times
+   */
+  Histogram getEvaluationTime ();
+
+  /**
+   * @return nodes visited per evaluation
+   */
+  Histogram getNodes ();
+
+  /**
+   * @return bean properties read per evaluation
+   */
+  Histogram getReads ();
+
+  /**
+   * @return results per evaluation
+   */
+  Histogram getResults ();
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jayway.jsonpath.EvaluationListener;
+
+/**
+ * Counts nodes visited, property reads and results of a single evaluation and
+ * enforces the budget if there is one. A meter is confined to the evaluating
+ * thread, tasks evaluating parts of the document in parallel each count
+ * through a {@link #fork()} which adds to counters shared with the evaluation
+ * and checks the budget against the totals on every node
+ * 
+ * @author levk
+ */
+final class Meter implements EvaluationListener {
+
+  /**
+   * Nodes visited between clock samples
+   */
+  static final int SAMPLE = 1024;
+
+  /**
+   * Budget, null if unlimited
+   */
+  private final Budget budget;
+  /**
+   * Deadline on the {@link System#nanoTime()} clock
+   */
+  private final long deadline;
+  /**
+   * Meter of the evaluation, null unless this is a fork
+   */
+  private final Meter root;
+  /**
+   * Nodes visited and results found by forks, only kept by the evaluation's
+   * meter
+   */
+  private final AtomicLong forkVisited, forkFound;
+  /**
+   * Bean properties read by forks, only kept by the evaluation's meter
+   */
+  private final LongAdder forkReads;
+  /**
+   * Nodes visited, by this fork alone if it is one, and visit count at which
+   * the clock is sampled next
+   */
+  private long visited, sample;
+  /**
+   * Bean properties read
+   */
+  private long reads;
+  /**
+   * Results found
+   */
+  private long found;
+
+  /**
+   * @param b
+   *          budget, null if unlimited
+   */
+  Meter (Budget b) {
+    budget = b;
+    deadline = b == null ? 0 : nanoTime () + b.nanos;
+    sample = b == null || b.nanos == 0 ? Long.MAX_VALUE : SAMPLE;
+    root = null;
+    forkVisited = new AtomicLong ();
+    forkFound = new AtomicLong ();
+    forkReads = new LongAdder ();
+  }
+
+  /**
+   * @param r
+   *          meter of the evaluation
+   */
+  private Meter (Meter r) {
+    budget = r.budget;
+    deadline = r.deadline;
+    sample = r.budget == null || r.budget.nanos == 0 ? Long.MAX_VALUE : SAMPLE;
+    root = r;
+    forkVisited = forkFound = null;
+    forkReads = null;
+  }
+
+  /**
+   * @return meter for a task evaluating in parallel, safe to use on any thread
+   *         while the evaluation waits for the task
+   */
+  Meter fork () {
+    return new Meter (root == null ? this : root);
+  }
+
+  /**
+   * Folds what forks counted into this meter once they are done, a no-op on
+   * forks
+   */
+  void settle () {
+    if (root != null) return;
+    visited += forkVisited.getAndSet (0);
+    found += forkFound.getAndSet (0);
+    reads += forkReads.sumThenReset ();
+  }
+
+  /**
+   * @param n
+   *          number of nodes visited
+   */
+  void visit (int n) {
+    visited += n;
+    long v = root == null ? visited : root.visited + root.forkVisited.addAndGet (n);
+    if (budget != null && v > budget.nodes) budget.abort (budget.nodes + " nodes");
+    if (visited >= sample) {
+      sample = visited + SAMPLE;
+      clock ();
+    }
+  }
+
+  /**
+   * Counts a bean property read
+   */
+  void read () {
+    if (root == null) reads++;
+    else root.forkReads.increment ();
+  }
+
+  /**
+   * @return nodes visited
+   */
+  long visited () {
+    return visited;
+  }
+
+  /**
+   * @return bean properties read
+   */
+  long reads () {
+    return reads;
+  }
+
+  /**
+   * @return results found
+   */
+  long found () {
+    return found;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * com.jayway.jsonpath.EvaluationListener#resultFound(com.jayway.jsonpath.
+   * EvaluationListener.FoundResult)
+   */
+  @Override
+  public EvaluationContinuation resultFound (FoundResult r) {
+    long f = root == null ? ++found : root.found + root.forkFound.incrementAndGet ();
+    if (budget != null) {
+      if (f > budget.results) budget.abort (budget.results + " results");
+      clock ();
+    }
+    return EvaluationContinuation.CONTINUE;
+  }
+
+  /**
+   * Checks the deadline
+   */
+  private void clock () {
+    if (budget.nanos > 0 && nanoTime () - deadline > 0) budget.abort (NANOSECONDS.toMillis (budget.nanos) + "ms");
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt in parallel evaluation of wildcards and filters over large arrays and
+ * random access lists. Arrays at or above the threshold are split into fork
+ * join tasks on a dedicated pool, results keep their order. Supply an instance
+ * via a {@link javax.ws.rs.ext.ContextResolver} to enable; it applies to paths
+ * with wildcards or filters and no deep scan. Every task counts against the
+ * {@link Budget} as it goes, node by node. There is deliberately no default
+ * threshold and evaluation stays sequential unless an instance is supplied;
+ * the break even length depends on the hardware and the cost of the
+ * properties read, measure it with {@code ParallelBenchmark} before enabling
+ * 
+ * @author levk
+ */
+public class Parallelism {
+
+  /**
+   * Smallest slice of an array evaluated by a single task
+   */
+  static final int GRAIN = 256;
+
+  /**
+   * Minimum length to evaluate in parallel
+   */
+  final int threshold;
+  /**
+   * Pool
+   */
+  final ForkJoinPool pool;
+
+  /**
+   * @param s
+   *          minimum array length to evaluate in parallel
+   * @param t
+   *          number of threads
+   */
+  public Parallelism (int s, int t) {
+    if (s < 2) throw new IllegalArgumentException ("Threshold must be at least 2");
+    threshold = s;
+    AtomicInteger n = new AtomicInteger ();
+    pool = new ForkJoinPool (t, p -> {
+      ForkJoinWorkerThread w = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread (p);
+      w.setName ("jsonpath-" + n.incrementAndGet ());
+      return w;
+    }, null, false);
+  }
+
+  /**
+   * @param s
+   *          minimum array length to evaluate in parallel
+   */
+  public Parallelism (int s) {
+    this (s, Runtime.getRuntime ().availableProcessors ());
+  }
+
+  /**
+   * @param l
+   *          array length
+   * @return largest slice a single task evaluates
+   */
+  int grain (int l) {
+    return Math.max (GRAIN, l / (4 * pool.getParallelism ()));
+  }
+
+  /**
+   * Stops the pool once running evaluations complete
+   */
+  public void shutdown () {
+    pool.shutdown ();
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.lang.Character.isJavaIdentifierPart;
+import static java.lang.Character.isWhitespace;
+import static java.util.Arrays.asList;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Bounded cache of compiled paths keyed by whitespace normalized expression.
+ * Reads are lock free, once full the cache evicts with second chance: entries
+ * hit since the last sweep are spared once. Supply an instance via a
+ * {@link javax.ws.rs.ext.ContextResolver} to size it for your application
+ * 
+ * @author levk
+ */
+public class PathCache {
+
+  /**
+   * Default capacity
+   */
+  public static final int DEFAULT_SIZE = 1024;
+  /**
+   * Filter operators spelled as words, jayway reads these up to the next space
+   * so the whitespace around them is significant
+   */
+  private static final Set <String> OPERATORS = new HashSet <> (asList ("in", "nin", "contains", "all", "size",
+                                                                        "exists", "type", "matches", "empty",
+                                                                        "anyof", "noneof", "subsetof"));
+
+  /**
+   * Capacity
+   */
+  private final int size;
+  /**
+   * Entries
+   */
+  private final ConcurrentHashMap <String, Entry> entries = new ConcurrentHashMap <> ();
+  /**
+   * Eviction order
+   */
+  private final Queue <String> order = new ConcurrentLinkedQueue <> ();
+  /**
+   * Counters
+   */
+  private final LongAdder hits = new LongAdder (), misses = new LongAdder (), evictions = new LongAdder ();
+
+  /**
+   * @param s
+   *          capacity
+   */
+  public PathCache (int s) {
+    if (s < 1) throw new IllegalArgumentException ("Capacity must be positive");
+    size = s;
+  }
+
+  public PathCache () {
+    this (DEFAULT_SIZE);
+  }
+
+  /**
+   * @param p
+   *          path expression
+   * @return compiled path
+   * @throws com.jayway.jsonpath.InvalidPathException
+   *           if the expression does not compile
+   */
+  public JsonPath compile (String p) {
+    return entry (p).path;
+  }
+
+  /**
+   * @param p
+   *          path expression
+   * @return cache entry
+   * @throws com.jayway.jsonpath.InvalidPathException
+   *           if the expression does not compile
+   */
+  Entry entry (String p) {
+    String k = normalize (p);
+    Entry e = entries.get (k);
+    if (e != null) {
+      hits.increment ();
+      if (!e.used) e.used = true;
+      return e;
+    }
+    misses.increment ();
+    Entry n = new Entry (k, JsonPath.compile (k));
+    if ((e = entries.putIfAbsent (k, n)) != null) return e;
+    order.add (k);
+    evict ();
+    return n;
+  }
+
+  /**
+   * @return number of lookups served from the cache
+   */
+  public long hits () {
+    return hits.sum ();
+  }
+
+  /**
+   * @return number of lookups that compiled the path
+   */
+  public long misses () {
+    return misses.sum ();
+  }
+
+  /**
+   * @return number of entries evicted
+   */
+  public long evictions () {
+    return evictions.sum ();
+  }
+
+  /**
+   * @return number of cached paths
+   */
+  public int size () {
+    return entries.size ();
+  }
+
+  /**
+   * Sweeps the eviction queue until the cache is within capacity
+   */
+  private void evict () {
+    for (String k; entries.size () > size && (k = order.poll ()) != null;) {
+      Entry e = entries.get (k);
+      if (e == null) continue;
+      else if (e.used) {
+        e.used = false;
+        order.add (k);
+      } else if (entries.remove (k, e)) evictions.increment ();
+    }
+  }
+
+  /**
+   * Strips insignificant whitespace outside of quoted and regular expression
+   * literals, whitespace separating two word characters or next to a word
+   * operator is collapsed to a single space
+   * 
+   * @param p
+   *          path expression
+   * @return normalized expression
+   */
+  static String normalize (String p) {
+    StringBuilder b = null;
+    char q = 0;
+    for (int i = 0; i < p.length (); i++) {
+      char c = p.charAt (i);
+      if (q != 0) {
+        if (c == '\\' && i + 1 < p.length ()) {
+          if (b != null) b.append (c);
+          c = p.charAt (++i);
+        } else if (c == q) q = 0;
+      } else if (c == '\'' || c == '"') q = c;
+      else if (c == '/' && (b == null ? i > 0 && p.charAt (i - 1) == '~'
+                                      : b.length () > 0 && b.charAt (b.length () - 1) == '~'))
+        q = c;
+      else if (isWhitespace (c)) {
+        if (b == null) b = new StringBuilder (p.length ()).append (p, 0, i);
+        int j = i;
+        while (j + 1 < p.length () && isWhitespace (p.charAt (j + 1)))
+          j++;
+        if (b.length () > 0 && j + 1 < p.length ()
+            && (isJavaIdentifierPart (b.charAt (b.length () - 1)) && isJavaIdentifierPart (p.charAt (j + 1))
+                || before (b) || after (p, j + 1)))
+          b.append (' ');
+        i = j;
+        continue;
+      }
+      if (b != null) b.append (c);
+    }
+    return b == null ? p : b.toString ();
+  }
+
+  /**
+   * @param b
+   *          normalized prefix
+   * @return whether the prefix ends with a word operator
+   */
+  private static boolean before (CharSequence b) {
+    int i = b.length ();
+    while (i > 0 && isJavaIdentifierPart (b.charAt (i - 1)))
+      i--;
+    return OPERATORS.contains (b.subSequence (i, b.length ()).toString ().toLowerCase ());
+  }
+
+  /**
+   * @param p
+   *          path expression
+   * @param i
+   *          offset
+   * @return whether a word operator starts at the offset
+   */
+  private static boolean after (String p, int i) {
+    int j = i;
+    while (j < p.length () && isJavaIdentifierPart (p.charAt (j)))
+      j++;
+    return OPERATORS.contains (p.substring (i, j).toLowerCase ());
+  }
+
+  /**
+   * Cached path
+   */
+  static final class Entry {
+    /**
+     * Normalized expression
+     */
+    final String expression;
+    /**
+     * Compiled path
+     */
+    final JsonPath path;
+    /**
+     * Selector, null if the path is beyond the native subset
+     */
+    private volatile Selector selector;
+    /**
+     * Whether {@link #selector} has been parsed
+     */
+    private volatile boolean parsed;
+    /**
+     * Hit since the last sweep
+     */
+    volatile boolean used;
+
+    /**
+     * @param e
+     *          normalized expression
+     * @param p
+     *          compiled path
+     */
+    Entry (String e, JsonPath p) {
+      expression = e;
+      path = p;
+    }
+
+    /**
+     * @return selector or null if the path is beyond the native subset
+     */
+    Selector selector () {
+      if (!parsed) {
+        selector = Selector.parse (expression);
+        parsed = true;
+      }
+      return selector;
+    }
+  }
+}
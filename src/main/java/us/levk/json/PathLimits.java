@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validation of requested paths ahead of evaluation: headers with too many
+ * paths, paths that are too long or have too many steps are refused before
+ * anything is parsed, paths that fail to compile are remembered in a bounded
+ * negative cache so that repeats are refused without compiling. Refused
+ * requests are answered with 400 Bad Request and counted apart from
+ * evaluation failures. Supply an instance via a
+ * {@link javax.ws.rs.ext.ContextResolver} to change the limits
+ * 
+ * @author levk
+ */
+public class PathLimits {
+
+  /**
+   * Maximum number of paths per request
+   */
+  private final int paths;
+  /**
+   * Maximum length of a path
+   */
+  private final int length;
+  /**
+   * Maximum number of steps in a path, counting dots, opening brackets and
+   * opening parentheses of filters and functions outside of quoted literals
+   */
+  private final int steps;
+  /**
+   * Negative cache capacity
+   */
+  private final int size;
+  /**
+   * Paths known to be malformed
+   */
+  private final Map <String, Boolean> malformed = new ConcurrentHashMap <> ();
+  /**
+   * Negative cache eviction order
+   */
+  private final Queue <String> order = new ConcurrentLinkedQueue <> ();
+  /**
+   * Counters
+   */
+  private final LongAdder rejected = new LongAdder (), invalid = new LongAdder (), failures = new LongAdder ();
+
+  /**
+   * @param p
+   *          maximum number of paths per request
+   * @param l
+   *          maximum length of a path
+   * @param s
+   *          maximum number of steps in a path
+   * @param c
+   *          number of malformed paths remembered
+   */
+  public PathLimits (int p, int l, int s, int c) {
+    if (p < 1 || l < 1 || s < 1 || c < 0) throw new IllegalArgumentException ("Limits must be positive");
+    paths = p;
+    length = l;
+    steps = s;
+    size = c;
+  }
+
+  /**
+   * 16 paths of up to 1024 characters and 64 steps, 1024 malformed paths
+   * remembered
+   */
+  public PathLimits () {
+    this (16, 1024, 64, 1024);
+  }
+
+  /**
+   * @return number of requests refused for exceeding a limit
+   */
+  public long rejected () {
+    return rejected.sum ();
+  }
+
+  /**
+   * @return number of requests refused for a malformed path
+   */
+  public long invalid () {
+    return invalid.sum ();
+  }
+
+  /**
+   * @return number of evaluations that failed
+   */
+  public long failures () {
+    return failures.sum ();
+  }
+
+  /**
+   * @param j
+   *          requested paths
+   * @return reason to refuse the request without parsing, null if none
+   */
+  String check (List <String> j) {
+    if (j.size () > paths) return reject ("JSONPath has more than " + paths + " paths");
+    for (String p : j)
+      if (p.length () > length) return reject ("JSONPath is longer than " + length + " characters");
+      else if (steps (p) > steps) return reject ("JSONPath has more than " + steps + " steps");
+      else if (malformed.containsKey (p)) {
+        invalid.increment ();
+        return "Malformed JSONPath";
+      }
+    return null;
+  }
+
+  /**
+   * Remembers a path that failed to compile
+   * 
+   * @param p
+   *          path
+   * @return reason to refuse the request
+   */
+  String malformed (String p) {
+    invalid.increment ();
+    if (size > 0 && malformed.put (p, Boolean.TRUE) == null) {
+      order.add (p);
+      for (String k; malformed.size () > size && (k = order.poll ()) != null;)
+        malformed.remove (k);
+    }
+    return "Malformed JSONPath";
+  }
+
+  /**
+   * Counts a failed evaluation
+   */
+  void failed () {
+    failures.increment ();
+  }
+
+  /**
+   * @param r
+   *          reason
+   * @return reason
+   */
+  private String reject (String r) {
+    rejected.increment ();
+    return r;
+  }
+
+  /**
+   * @param p
+   *          path
+   * @return number of dots, opening brackets and opening parentheses outside
+   *         of quoted literals
+   */
+  private static int steps (String p) {
+    int n = 0;
+    char q = 0;
+    for (int i = 0; i < p.length (); i++) {
+      char c = p.charAt (i);
+      if (q != 0) {
+        if (c == '\\') i++;
+        else if (c == q) q = 0;
+      } else if (c == '\'' || c == '"') q = c;
+      else if (c == '.' || c == '[' || c == '(') n++;
+    }
+    return n;
+  }
+}
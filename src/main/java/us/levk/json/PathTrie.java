@@ -0,0 +1,563 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.EvaluationListener;
+import com.jayway.jsonpath.EvaluationListener.FoundResult;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.Predicate.PredicateContext;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.jayway.jsonpath.spi.mapper.MappingException;
+
+import us.levk.json.Selector.Kind;
+import us.levk.json.Selector.Step;
+
+/**
+ * Several paths over the same document evaluated in a single traversal: paths
+ * of properties, wildcards, indexes, slices and filters are merged into a
+ * prefix trie and every node is read once no matter how many paths share it,
+ * paths with deep scans are evaluated by jayway afterwards. Wildcards and
+ * filters over large arrays may be evaluated in parallel. Results are keyed by path as
+ * given; a definite path yields its value and is left out if nothing matched,
+ * an indefinite path yields the list of its matches
+ * 
+ * @author levk
+ */
+final class PathTrie {
+
+  /**
+   * Trie node, selects values with its step out of its parent's values
+   */
+  private static final class Node {
+    /**
+     * Step, null for the root
+     */
+    final Step step;
+    /**
+     * Whether the step merges its properties into a single object
+     */
+    final boolean merge;
+    /**
+     * Children by step
+     */
+    final Map <String, Node> children = new LinkedHashMap <> ();
+    /**
+     * Paths ending here
+     */
+    final List <Integer> ends = new ArrayList <> ();
+
+    /**
+     * @param s
+     *          step
+     * @param m
+     *          merge
+     */
+    Node (Step s, boolean m) {
+      step = s;
+      merge = m;
+    }
+  }
+
+  /**
+   * Evaluation state
+   */
+  private static final class Evaluation {
+    /**
+     * Configuration, results are reported to its listeners
+     */
+    final Configuration configuration;
+    /**
+     * Document
+     */
+    final Object root;
+    /**
+     * Results by path
+     */
+    final List <List <Object>> results;
+
+    /**
+     * @param c
+     *          configuration
+     * @param o
+     *          document
+     * @param n
+     *          number of paths
+     */
+    Evaluation (Configuration c, Object o, int n) {
+      configuration = c;
+      root = o;
+      results = new ArrayList <> (n);
+      for (int i = 0; i < n; i++)
+        results.add (new ArrayList <> ());
+    }
+  }
+
+  /**
+   * Filter context
+   */
+  private static final class Item implements PredicateContext {
+    /**
+     * Evaluation
+     */
+    final Evaluation evaluation;
+    /**
+     * Item
+     */
+    final Object item;
+
+    /**
+     * @param e
+     *          evaluation
+     * @param i
+     *          item
+     */
+    Item (Evaluation e, Object i) {
+      evaluation = e;
+      item = i;
+    }
+
+    @Override
+    public Object item () {
+      return item;
+    }
+
+    @Override
+    public <T> T item (Class <T> c) throws MappingException {
+      return configuration ().mappingProvider ().map (item, c, configuration ());
+    }
+
+    @Override
+    public Object root () {
+      return evaluation.root;
+    }
+
+    @Override
+    public Configuration configuration () {
+      return evaluation.configuration;
+    }
+  }
+
+  /**
+   * Paths as given
+   */
+  private final List <String> paths;
+  /**
+   * Compiled paths
+   */
+  private final List <PathCache.Entry> entries;
+  /**
+   * Parallel evaluation, null for sequential
+   */
+  private final Parallelism parallelism;
+  /**
+   * Root
+   */
+  private final Node root = new Node (null, false);
+  /**
+   * Paths left to jayway
+   */
+  private final List <Integer> fallback = new ArrayList <> ();
+
+  /**
+   * @param p
+   *          paths as given
+   * @param e
+   *          compiled paths in the same order
+   * @param l
+   *          parallel evaluation, null for sequential
+   */
+  PathTrie (List <String> p, List <PathCache.Entry> e, Parallelism l) {
+    paths = p;
+    entries = e;
+    parallelism = l;
+    for (int i = 0; i < e.size (); i++) {
+      Selector s = e.get (i).selector ();
+      if (!supports (s)) fallback.add (i);
+      else {
+        Node n = root;
+        for (int j = 0; j < s.steps.size (); j++) {
+          Step t = s.steps.get (j);
+          boolean m = j == s.steps.size () - 1 && s.merge ();
+          n = n.children.computeIfAbsent (key (t, m), k -> new Node (t, m));
+        }
+        n.ends.add (i);
+      }
+    }
+  }
+
+  /**
+   * @param s
+   *          selector
+   * @return whether the trie evaluates the path itself
+   */
+  static boolean supports (Selector s) {
+    return s != null && !s.has (Kind.SCAN);
+  }
+
+  /**
+   * @param o
+   *          document
+   * @param c
+   *          configuration, results are reported to its evaluation listeners
+   * @return results keyed by path
+   */
+  Map <String, Object> read (Object o, Configuration c) {
+    Evaluation e = new Evaluation (c, o, paths.size ());
+    visit (root, o, e);
+    List <List <Object>> r = e.results;
+    Map <String, Object> m = new LinkedHashMap <> ();
+    for (int i = 0; i < paths.size (); i++)
+      if (fallback.contains (i)) try {
+        m.put (paths.get (i), entries.get (i).path.read (o, c));
+      } catch (PathNotFoundException x) {}
+      else if (!entries.get (i).selector ().definite ()) m.put (paths.get (i), r.get (i));
+      else if (!r.get (i).isEmpty ()) m.put (paths.get (i), r.get (i).get (0));
+    return m;
+  }
+
+  /**
+   * Evaluates the single path below its first step for one element of a root
+   * array, filters must not refer to the root as the element stands in for it
+   * 
+   * @param x
+   *          element
+   * @param c
+   *          configuration
+   * @return matches in the element
+   */
+  List <Object> below (Object x, Configuration c) {
+    Evaluation e = new Evaluation (c, x, paths.size ());
+    element (root.children.values ().iterator ().next (), x, e);
+    return e.results.get (0);
+  }
+
+  /**
+   * @param n
+   *          node
+   * @param v
+   *          value selected by the node
+   * @param e
+   *          evaluation
+   */
+  private void visit (Node n, Object v, Evaluation e) {
+    for (int i : n.ends) {
+      e.results.get (i).add (v);
+      report (e.configuration, i, e.results.get (i), e.results.get (i).size () - 1, null);
+    }
+    JsonProvider p = e.configuration.jsonProvider ();
+    Map <String, Object> m = n.children.size () > 1 ? new HashMap <> () : null;
+    for (Node k : n.children.values ()) {
+      Step s = k.step;
+      if (s.kind == Kind.PROPERTY && p.isMap (v)) {
+        if (k.merge) {
+          Object o = p.createMap ();
+          for (String j : s.names) {
+            Object x = read (p, v, j, m);
+            if (x != UNDEFINED) p.setProperty (o, j, x);
+          }
+          visit (k, o, e);
+        } else for (String j : s.names) {
+          Object x = read (p, v, j, m);
+          if (x != UNDEFINED) visit (k, x, e);
+        }
+      } else if (s.kind == Kind.WILDCARD && p.isMap (v)) {
+        for (String j : p.getPropertyKeys (v)) {
+          Object x = read (p, v, j, m);
+          if (x != UNDEFINED) visit (k, x, e);
+        }
+      } else if (s.kind == Kind.FILTER && p.isMap (v)) {
+        if (accept (s, v, e)) visit (k, v, e);
+      } else if ((s.kind == Kind.WILDCARD || s.kind == Kind.FILTER) && p.isArray (v)) {
+        int l;
+        if (parallelism != null && (v instanceof RandomAccess || v.getClass ().isArray ())
+            && (l = p.length (v)) >= parallelism.threshold)
+          fork (k, v, l, e);
+        else for (Object x : p.toIterable (v))
+          element (k, x, e);
+      } else if (s.kind == Kind.INDEX && p.isArray (v)) {
+        int l = p.length (v);
+        for (int i : s.indexes)
+          if (i < l) visit (k, p.getArrayIndex (v, i), e);
+      } else if (s.kind == Kind.SLICE && p.isArray (v)) {
+        for (int i = s.from, l = min (s.to, p.length (v)); i < l; i++)
+          visit (k, p.getArrayIndex (v, i), e);
+      }
+    }
+  }
+
+  /**
+   * @param k
+   *          node selecting array elements
+   * @param x
+   *          array element
+   * @param e
+   *          evaluation
+   */
+  private void element (Node k, Object x, Evaluation e) {
+    if (k.step.kind != Kind.FILTER || accept (k.step, x, e)) visit (k, x, e);
+  }
+
+  /**
+   * @param s
+   *          filter step
+   * @param x
+   *          item
+   * @param e
+   *          evaluation
+   * @return whether the item passes
+   */
+  private static boolean accept (Step s, Object x, Evaluation e) {
+    Comparison c = s.comparison ();
+    int r = c == null ? Comparison.UNKNOWN : c.test (x, e.configuration.jsonProvider ());
+    if (r != Comparison.UNKNOWN) return r == 1;
+    try {
+      return s.predicate ().apply (new Item (e, x));
+    } catch (InvalidPathException i) {
+      return false;
+    }
+  }
+
+  /**
+   * Evaluates a node over the elements of an array in parallel and appends the
+   * results in order
+   * 
+   * @param k
+   *          wildcard or filter node
+   * @param v
+   *          array
+   * @param l
+   *          length
+   * @param e
+   *          evaluation
+   */
+  private void fork (Node k, Object v, int l, Evaluation e) {
+    Meter b = meter (e.configuration);
+    Slice t = new Slice (k, v, 0, l, parallelism.grain (l), e, b);
+    List <List <Object>> r;
+    try {
+      r = ForkJoinTask.getPool () == parallelism.pool ? t.invoke () : parallelism.pool.invoke (t);
+    } finally {
+      if (b != null) b.settle ();
+    }
+    for (int i = 0; i < r.size (); i++) {
+      List <Object> a = e.results.get (i);
+      int f = a.size ();
+      a.addAll (r.get (i));
+      report (e.configuration, i, a, f, b);
+    }
+  }
+
+  /**
+   * Range of array elements evaluated by a task, each leaf task evaluates with
+   * its own provider fork and counts against its own fork of the evaluation's
+   * meter, other listeners are told of results once the tasks are joined
+   */
+  private final class Slice extends RecursiveTask <List <List <Object>>> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Node
+     */
+    final Node node;
+    /**
+     * Array
+     */
+    final Object array;
+    /**
+     * Range
+     */
+    final int from, to, grain;
+    /**
+     * Parent evaluation
+     */
+    final Evaluation parent;
+    /**
+     * Meter of the parent evaluation, null if unmetered
+     */
+    final Meter meter;
+
+    /**
+     * @param k
+     *          node
+     * @param v
+     *          array
+     * @param f
+     *          from
+     * @param t
+     *          to, exclusive
+     * @param g
+     *          grain
+     * @param e
+     *          parent evaluation
+     * @param b
+     *          meter of the parent evaluation, null if unmetered
+     */
+    Slice (Node k, Object v, int f, int t, int g, Evaluation e, Meter b) {
+      node = k;
+      array = v;
+      from = f;
+      to = t;
+      grain = g;
+      parent = e;
+      meter = b;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.RecursiveTask#compute()
+     */
+    @Override
+    protected List <List <Object>> compute () {
+      if (to - from > grain) {
+        int m = (from + to) >>> 1;
+        Slice l = new Slice (node, array, from, m, grain, parent, meter),
+            r = new Slice (node, array, m, to, grain, parent, meter);
+        invokeAll (l, r);
+        List <List <Object>> a = l.join (), b = r.join ();
+        for (int i = 0; i < a.size (); i++)
+          a.get (i).addAll (b.get (i));
+        return a;
+      }
+      Configuration c = parent.configuration;
+      Meter b = meter == null ? null : meter.fork ();
+      JsonProvider p = c.jsonProvider ();
+      if (p instanceof JacksonBeanJsonProvider) p = ((JacksonBeanJsonProvider) p).fork (null, b);
+      c = builder ().jsonProvider (p).mappingProvider (c.mappingProvider ()).options (c.getOptions ()).build ();
+      if (b != null) c = c.addEvaluationListeners (b);
+      Evaluation e = new Evaluation (c, parent.root, paths.size ());
+      for (int i = from; i < to; i++)
+        element (node, p.getArrayIndex (array, i), e);
+      return e.results;
+    }
+  }
+
+  /**
+   * Tells the listeners of results found; the trie does not track the definite
+   * path of each result, so {@link FoundResult#path()} is the requested path
+   * and the listeners' continuation is not acted on
+   * 
+   * @param c
+   *          configuration
+   * @param p
+   *          position of the path
+   * @param r
+   *          results of the path
+   * @param f
+   *          position of the first result to report
+   * @param s
+   *          listener that already counted the results, may be null
+   */
+  private void report (Configuration c, int p, List <Object> r, int f, EvaluationListener s) {
+    for (EvaluationListener l : c.getEvaluationListeners ())
+      if (l != s) for (int i = f; i < r.size (); i++) {
+        int j = i;
+        l.resultFound (new FoundResult () {
+          @Override
+          public int index () {
+            return j;
+          }
+
+          @Override
+          public String path () {
+            return paths.get (p);
+          }
+
+          @Override
+          public Object result () {
+            return r.get (j);
+          }
+        });
+      }
+  }
+
+  /**
+   * @param c
+   *          configuration
+   * @return meter among the listeners, null if unmetered
+   */
+  private static Meter meter (Configuration c) {
+    for (EvaluationListener l : c.getEvaluationListeners ())
+      if (l instanceof Meter) return (Meter) l;
+    return null;
+  }
+
+  /**
+   * @param p
+   *          provider
+   * @param v
+   *          object
+   * @param k
+   *          property
+   * @param m
+   *          properties already read from the object, null if not shared
+   * @return property value
+   */
+  private static Object read (JsonProvider p, Object v, String k, Map <String, Object> m) {
+    if (m == null) return p.getMapValue (v, k);
+    Object x = m.get (k);
+    if (x == null && !m.containsKey (k)) m.put (k, x = p.getMapValue (v, k));
+    return x;
+  }
+
+  /**
+   * @param s
+   *          step
+   * @param m
+   *          whether the step merges
+   * @return key identifying equivalent steps
+   */
+  private static String key (Step s, boolean m) {
+    switch (s.kind) {
+    case PROPERTY:
+      return (m ? "m" : "p") + s.names;
+    case INDEX:
+      return "i" + Arrays.toString (s.indexes);
+    case SLICE:
+      return "s" + s.from + ":" + s.to;
+    case FILTER:
+      return "f" + s.filter;
+    default:
+      return s.kind.name ();
+    }
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.HeaderParam;
+
+import us.levk.json.Selector.Step;
+
+/**
+ * The paths requested for a response, as seen by the resource producing it.
+ * Inject as a {@code @BeanParam} and query which properties and how many
+ * leading array elements the paths can reach, so the resource loads only
+ * those. Properties are addressed by name from the root; array elements are
+ * transparent, steps into them (indexes, slices, filters, wildcards) do not
+ * add to the address. Answers are conservative: a path beyond the supported
+ * subset, a deep scan or a filter referring to the root, scanning deep, calling
+ * a function or naming properties other than in single quotes require
+ * everything below the point where they occur. A property below a wildcard
+ * on an object is reachable with whatever the wildcard reaches below each
+ * property
+ * 
+ * @author levk
+ */
+public class Projection {
+
+  /**
+   * Property references in filter expressions
+   */
+  private static final Pattern REFERENCE = Pattern.compile ("@((?:\\.[A-Za-z_$][\\w$]*|\\['[^']*'\\])+)");
+  /**
+   * Property reference steps
+   */
+  private static final Pattern NAME = Pattern.compile ("\\.([A-Za-z_$][\\w$]*)|\\['([^']*)'\\]");
+
+  /**
+   * Path header values
+   */
+  private @HeaderParam (JsonPathInterceptor.JSONPATH) List <String> headers;
+  /**
+   * Reachable properties, built on first query
+   */
+  private volatile Node root;
+
+  /**
+   * For {@code @BeanParam} injection
+   */
+  public Projection () {}
+
+  /**
+   * @param h
+   *          path header values, as returned by
+   *          {@link javax.ws.rs.core.HttpHeaders#getRequestHeader(String)}
+   */
+  public Projection (List <String> h) {
+    headers = h;
+  }
+
+  /**
+   * @return whether the response will be projected
+   */
+  public boolean present () {
+    return !paths ().isEmpty ();
+  }
+
+  /**
+   * @return requested paths
+   */
+  public List <String> paths () {
+    return unmodifiableList (JsonPathInterceptor.split (headers));
+  }
+
+  /**
+   * @param p
+   *          property names from the root
+   * @return whether anything at or below the property is reachable
+   */
+  public boolean referenced (String... p) {
+    return node (p) != null;
+  }
+
+  /**
+   * @param p
+   *          property names from the root
+   * @return names of the properties directly below the property that are
+   *         reachable, null if the whole value is
+   */
+  public Set <String> properties (String... p) {
+    Node n = node (p);
+    return n == null ? emptySet () : n.every ? null : unmodifiableSet (n.children.keySet ());
+  }
+
+  /**
+   * @param p
+   *          property names from the root
+   * @return whether a wildcard applies at the property, if the value is an
+   *         object rather than an array every property is reachable and
+   *         {@link #properties(String...)} lists what is reachable below each
+   */
+  public boolean wildcard (String... p) {
+    Node n = node (p);
+    return n != null && (n.every || n.wildcard);
+  }
+
+  /**
+   * Only a leading run of elements can be pushed down, an offset would shift
+   * the indexes the paths address
+   * 
+   * @param p
+   *          property names from the root
+   * @return number of leading elements of the array at the property that are
+   *         reachable, {@link Integer#MAX_VALUE} if unbounded
+   */
+  public int limit (String... p) {
+    Node n = node (p);
+    return n == null ? 0 : n.limit < 0 ? Integer.MAX_VALUE : n.limit;
+  }
+
+  /**
+   * @param p
+   *          property names from the root
+   * @return node for the property, {@link Node#EVERY} if below a wholly
+   *         reachable value, null if nothing is reachable
+   */
+  private Node node (String... p) {
+    Node n = root ();
+    for (int i = 0; i < p.length && n != null; i++)
+      n = n.every ? Node.EVERY : n.wildcard ? n.member (p[i]) : n.children.get (p[i]);
+    return n;
+  }
+
+  /**
+   * @return reachable properties
+   */
+  private Node root () {
+    Node r = root;
+    if (r == null) {
+      List <String> j = JsonPathInterceptor.split (headers);
+      r = new Node ();
+      if (j.isEmpty ()) r.add (null, 0);
+      for (String p : j) {
+        Selector s = Selector.parse (p);
+        r.add (s == null ? null : s.steps, 0);
+      }
+      root = r;
+    }
+    return r;
+  }
+
+  /**
+   * Reachable property
+   */
+  private static final class Node {
+    /**
+     * Stands for values below a wholly reachable one
+     */
+    static final Node EVERY = new Node ();
+
+    static {
+      EVERY.every = true;
+    }
+
+    /**
+     * Reachable properties below
+     */
+    final Map <String, Node> children = new LinkedHashMap <> ();
+    /**
+     * Whether the whole value is reachable
+     */
+    boolean every;
+    /**
+     * Whether a wildcard applies
+     */
+    boolean wildcard;
+    /**
+     * Leading elements reachable, negative if unbounded or if no element step
+     * applies
+     */
+    int limit = Integer.MIN_VALUE;
+
+    /**
+     * @param s
+     *          steps, null if the whole value is reachable
+     * @param i
+     *          first step applying to this node
+     */
+    void add (List <Step> s, int i) {
+      if (s == null || i == s.size ()) {
+        every = true;
+        if (s == null || i == 0 || s.get (i - 1).object ()) limit = -1;
+        return;
+      }
+      Step t = s.get (i);
+      switch (t.kind) {
+      case PROPERTY:
+        for (String n : t.names)
+          child (n).add (s, i + 1);
+        return;
+      case WILDCARD:
+        wildcard = true;
+        limit = -1;
+        break;
+      case INDEX:
+        for (int j : t.indexes)
+          bound (j + 1);
+        break;
+      case SLICE:
+        bound (t.to);
+        break;
+      case FILTER:
+        if (!references (t.filter)) {
+          add (null, 0);
+          return;
+        }
+        limit = -1;
+        break;
+      default:
+        add (null, 0);
+        return;
+      }
+      add (s, i + 1);
+    }
+
+    /**
+     * Marks the properties a filter reads as wholly reachable
+     * 
+     * @param f
+     *          filter expression
+     * @return false if the filter reads anything not accounted for: the root,
+     *         the item itself, a deep scan, a function or a property named in
+     *         double quotes
+     */
+    private boolean references (String f) {
+      Matcher r = REFERENCE.matcher (f);
+      for (int i = 0; i < f.length (); i++) {
+        char c = f.charAt (i);
+        if (c == '\'') {
+          for (i++; i < f.length () && f.charAt (i) != '\''; i++)
+            if (f.charAt (i) == '\\') i++;
+        } else if (c == '"' || c == '$') return false;
+        else if (c == '@') {
+          if (!r.region (i, f.length ()).lookingAt ()) return false;
+          int e = r.end ();
+          if (e < f.length () && (f.charAt (e) == '.' || f.charAt (e) == '(')) return false;
+          Node n = this;
+          for (Matcher q = NAME.matcher (r.group (1)); q.find ();)
+            n = n.child (q.group (1) != null ? q.group (1) : q.group (2));
+          n.every = true;
+          n.limit = -1;
+          i = e - 1;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @param k
+     *          property name
+     * @return node for a property of an object a wildcard applies to, what
+     *         the wildcard reaches below each property along with what is
+     *         reached by name
+     */
+    Node member (String k) {
+      Node m = new Node ();
+      m.merge (this);
+      Node c = children.get (k);
+      if (c != null) m.merge (c);
+      return m.every ? EVERY : m;
+    }
+
+    /**
+     * @param n
+     *          node to add what it reaches to this one
+     */
+    private void merge (Node n) {
+      every |= n.every;
+      wildcard |= n.wildcard;
+      if (n.limit != Integer.MIN_VALUE)
+        limit = limit == Integer.MIN_VALUE ? n.limit : limit < 0 || n.limit < 0 ? -1 : Math.max (limit, n.limit);
+      n.children.forEach ((k, c) -> child (k).merge (c));
+    }
+
+    /**
+     * @param l
+     *          leading elements reachable
+     */
+    private void bound (int l) {
+      if (limit == Integer.MIN_VALUE || (limit >= 0 && limit < l)) limit = l;
+    }
+
+    /**
+     * @param n
+     *          name
+     * @return child node, created if absent
+     */
+    private Node child (String n) {
+      return children.computeIfAbsent (n, k -> new Node ());
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.PathNotFoundException;
+
+/**
+ * Evaluation over entities that are already serialized JSON: strings, byte
+ * arrays and input streams. Paths {@link StreamingProjection} handles, short
+ * of merges, run over a parser on the raw text through the same token filter;
+ * subtrees that cannot match are skipped without decoding their values and
+ * matches are copied token for token to the output. Other paths see the text
+ * read into a tree
+ * 
+ * @author levk
+ */
+final class RawProjection {
+
+  private RawProjection () {}
+
+  /**
+   * @param e
+   *          entity
+   * @return whether the entity is serialized JSON, given a JSON media type
+   */
+  static boolean raw (Object e) {
+    return e instanceof CharSequence || e instanceof byte[] || e instanceof InputStream;
+  }
+
+  /**
+   * @param s
+   *          selector
+   * @return whether the path can be evaluated over the raw text
+   */
+  static boolean supports (Selector s) {
+    return StreamingProjection.supports (s) && !s.merge ();
+  }
+
+  /**
+   * @param e
+   *          serialized entity, closed once written
+   * @param s
+   *          supported selector
+   * @param m
+   *          mapper
+   * @param o
+   *          output
+   * @throws IOException
+   *           on read or write failure
+   * @throws PathNotFoundException
+   *           if a definite path matched nothing
+   */
+  static void write (Object e, Selector s, ObjectMapper m, OutputStream o) throws IOException {
+    boolean d = s.definite (), w = false;
+    JsonGenerator g = m.getFactory ().createGenerator (o).disable (AUTO_CLOSE_TARGET);
+    if (!d) g.writeStartArray ();
+    try (JsonParser p = new FilteringParserDelegate (parser (e, m), StreamingProjection.filter (s.steps, 0, null), false,
+                                                     true)) {
+      while (!(d && w) && p.nextToken () != null) {
+        g.copyCurrentStructure (p);
+        w = true;
+      }
+    }
+    if (d && !w) throw new PathNotFoundException ("No results for path: " + s.path);
+    if (!d) g.writeEndArray ();
+    g.flush ();
+  }
+
+  /**
+   * @param e
+   *          serialized entity, closed once read
+   * @param m
+   *          mapper
+   * @return tree
+   * @throws IOException
+   *           on read failure
+   */
+  static JsonNode tree (Object e, ObjectMapper m) throws IOException {
+    try (JsonParser p = parser (e, m)) {
+      return m.readTree (p);
+    }
+  }
+
+  /**
+   * @param e
+   *          serialized entity
+   * @param m
+   *          mapper
+   * @return parser over the entity
+   * @throws IOException
+   *           on read failure
+   */
+  private static JsonParser parser (Object e, ObjectMapper m) throws IOException {
+    JsonFactory f = m.getFactory ();
+    return e instanceof byte[] ? f.createParser ((byte[]) e)
+                               : e instanceof InputStream ? f.createParser ((InputStream) e) : f.createParser (e.toString ());
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.nio.channels.Channels.newChannel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Size bounded cache of serialized filtered responses keyed by entity version,
+ * request URI, entity class, media type and normalized paths. The version is taken from a
+ * {@link Versioned} entity, else from the ETag the resource set, else, if
+ * enabled, from the identity of the entity which must then never be mutated.
+ * Responses carry an ETag derived from their content so that matching
+ * {@code If-None-Match} requests get a 304. Bodies are kept on heap or in
+ * direct buffers, once over capacity the cache evicts with second chance.
+ * Supply an instance via a {@link javax.ws.rs.ext.ContextResolver} to enable
+ * 
+ * @author levk
+ */
+public class ResponseCache {
+
+  /**
+   * Cached response
+   */
+  static final class Entry {
+    /**
+     * Key
+     */
+    final Key key;
+    /**
+     * Entity tag, quoted
+     */
+    final String tag;
+    /**
+     * Body on heap, null if direct
+     */
+    private final byte[] heap;
+    /**
+     * Body off heap, null if on heap
+     */
+    private final ByteBuffer direct;
+    /**
+     * Hit since the last sweep
+     */
+    volatile boolean used;
+
+    /**
+     * @param k
+     *          key
+     * @param b
+     *          body
+     * @param d
+     *          whether to keep the body off heap
+     */
+    Entry (Key k, byte[] b, boolean d) {
+      key = k;
+      tag = tag (b);
+      if (d) {
+        heap = null;
+        direct = ByteBuffer.allocateDirect (b.length).put (b);
+        // flip through Buffer, ByteBuffer.flip () does not exist before Java 9
+        Buffer f = direct;
+        f.flip ();
+      } else {
+        heap = b;
+        direct = null;
+      }
+    }
+
+    /**
+     * @return body size
+     */
+    int size () {
+      return heap != null ? heap.length : direct.capacity ();
+    }
+
+    /**
+     * @param o
+     *          stream to write the body to
+     * @throws IOException
+     *           on failure
+     */
+    void write (OutputStream o) throws IOException {
+      if (heap != null) o.write (heap);
+      else newChannel (o).write (direct.duplicate ());
+    }
+
+    /**
+     * @param b
+     *          body
+     * @return strong entity tag of the body
+     */
+    private static String tag (byte[] b) {
+      try {
+        byte[] d = MessageDigest.getInstance ("SHA-256").digest (b);
+        StringBuilder t = new StringBuilder ("\"");
+        for (int i = 0; i < 16; i++)
+          t.append (Character.forDigit ((d[i] >> 4) & 0xf, 16)).append (Character.forDigit (d[i] & 0xf, 16));
+        return t.append ('"').toString ();
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException (e);
+      }
+    }
+  }
+
+  /**
+   * Cache key
+   */
+  static final class Key {
+    /**
+     * Version
+     */
+    private final Object version;
+    /**
+     * Request URI, entity class, media type and paths
+     */
+    private final String request;
+
+    /**
+     * @param v
+     *          version
+     * @param r
+     *          request URI, entity class, media type and paths
+     */
+    Key (Object v, String r) {
+      version = v;
+      request = r;
+    }
+
+    @Override
+    public int hashCode () {
+      return version.hashCode () * 31 + request.hashCode ();
+    }
+
+    @Override
+    public boolean equals (Object o) {
+      return o instanceof Key && ((Key) o).version.equals (version) && ((Key) o).request.equals (request);
+    }
+  }
+
+  /**
+   * Version by identity, does not keep the entity alive
+   */
+  private static final class Identity extends WeakReference <Object> {
+    /**
+     * Hash
+     */
+    private final int hash;
+
+    /**
+     * @param o
+     *          entity
+     */
+    Identity (Object o) {
+      super (o);
+      hash = System.identityHashCode (o);
+    }
+
+    @Override
+    public int hashCode () {
+      return hash;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+      Object r = get ();
+      return o instanceof Identity && r != null && ((Identity) o).get () == r;
+    }
+  }
+
+  /**
+   * Capacity in bytes
+   */
+  private final long capacity;
+  /**
+   * Whether bodies are kept off heap
+   */
+  private final boolean direct;
+  /**
+   * Whether entities without a version are cached by identity
+   */
+  private final boolean identity;
+  /**
+   * Entries
+   */
+  private final ConcurrentHashMap <Key, Entry> entries = new ConcurrentHashMap <> ();
+  /**
+   * Eviction order
+   */
+  private final Queue <Entry> order = new ConcurrentLinkedQueue <> ();
+  /**
+   * Bytes held
+   */
+  private final AtomicLong size = new AtomicLong ();
+  /**
+   * Counters
+   */
+  private final LongAdder hits = new LongAdder (), misses = new LongAdder (), evictions = new LongAdder ();
+
+  /**
+   * @param c
+   *          capacity in bytes
+   * @param d
+   *          whether to keep bodies in direct buffers
+   * @param i
+   *          whether to cache entities without a version by identity
+   */
+  public ResponseCache (long c, boolean d, boolean i) {
+    if (c < 1) throw new IllegalArgumentException ("Capacity must be positive");
+    capacity = c;
+    direct = d;
+    identity = i;
+  }
+
+  /**
+   * @param c
+   *          capacity in bytes
+   */
+  public ResponseCache (long c) {
+    this (c, false, false);
+  }
+
+  /**
+   * @param e
+   *          entity
+   * @param t
+   *          entity tag set by the resource, may be null
+   * @param u
+   *          request URI
+   * @param m
+   *          media type
+   * @param p
+   *          paths
+   * @return key or null if the entity has no version
+   */
+  Key key (Object e, Object t, URI u, MediaType m, List <String> p) {
+    Object v = e instanceof Versioned ? ((Versioned) e).version () : t != null ? t.toString () : null;
+    if (v == null && identity && e != null) v = new Identity (e);
+    if (v == null) return null;
+    StringBuilder r = new StringBuilder (String.valueOf (u)).append ('\n')
+                                                            .append (e == null ? null : e.getClass ().getName ())
+                                                            .append ('\n').append (m);
+    for (String s : p)
+      r.append ('\n').append (PathCache.normalize (s));
+    return new Key (v, r.toString ());
+  }
+
+  /**
+   * @param k
+   *          key
+   * @return entry or null
+   */
+  Entry get (Key k) {
+    Entry e = entries.get (k);
+    if (e == null) misses.increment ();
+    else {
+      hits.increment ();
+      if (!e.used) e.used = true;
+    }
+    return e;
+  }
+
+  /**
+   * @param k
+   *          key
+   * @param b
+   *          body
+   * @return cached entry, null if the body does not fit
+   */
+  Entry put (Key k, byte[] b) {
+    if (b.length > capacity) return null;
+    Entry n = new Entry (k, b, direct), e = entries.put (k, n);
+    if (e != null) size.addAndGet (-e.size ());
+    size.addAndGet (n.size ());
+    order.add (n);
+    evict ();
+    return n;
+  }
+
+  /**
+   * Second chance eviction down to capacity
+   */
+  private void evict () {
+    for (Entry e; size.get () > capacity && (e = order.poll ()) != null;)
+      if (entries.get (e.key) != e) continue;
+      else if (e.used) {
+        e.used = false;
+        order.add (e);
+      } else if (entries.remove (e.key, e)) {
+        size.addAndGet (-e.size ());
+        evictions.increment ();
+      }
+  }
+
+  /**
+   * @return number of responses served from the cache
+   */
+  public long hits () {
+    return hits.sum ();
+  }
+
+  /**
+   * @return number of versioned responses not found in the cache
+   */
+  public long misses () {
+    return misses.sum ();
+  }
+
+  /**
+   * @return number of responses evicted
+   */
+  public long evictions () {
+    return evictions.sum ();
+  }
+
+  /**
+   * @return bytes held
+   */
+  public long size () {
+    return size.get ();
+  }
+}
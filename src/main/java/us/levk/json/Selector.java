@@ -0,0 +1,352 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.jayway.jsonpath.Filter;
+
+/**
+ * Parsed path restricted to the subset of JSONPath that can be evaluated
+ * without jayway: dot and bracket properties, wildcards, non negative indexes
+ * and slices, deep scans and filters (kept as source text)
+ * 
+ * @author levk
+ */
+final class Selector {
+
+  /**
+   * Step kind
+   */
+  enum Kind {
+    PROPERTY, WILDCARD, INDEX, SLICE, SCAN, FILTER
+  }
+
+  /**
+   * Path step
+   */
+  static final class Step {
+    /**
+     * Kind
+     */
+    final Kind kind;
+    /**
+     * Property names for {@link Kind#PROPERTY}
+     */
+    final List <String> names;
+    /**
+     * Indexes for {@link Kind#INDEX}
+     */
+    final int[] indexes;
+    /**
+     * Slice bounds for {@link Kind#SLICE}, upper bound is exclusive and
+     * {@link Integer#MAX_VALUE} if open
+     */
+    final int from, to;
+    /**
+     * Filter expression, brackets included, for {@link Kind#FILTER}
+     */
+    final String filter;
+    /**
+     * Compiled filter, parsed on first use
+     */
+    private volatile Filter predicate;
+    /**
+     * Typed comparison, parsed on first use
+     */
+    private volatile Comparison comparison;
+    /**
+     * Whether {@link #comparison} has been parsed
+     */
+    private volatile boolean compared;
+
+    /**
+     * @param k
+     *          kind
+     * @param n
+     *          names
+     * @param i
+     *          indexes
+     * @param f
+     *          from
+     * @param t
+     *          to
+     * @param e
+     *          filter
+     */
+    private Step (Kind k, List <String> n, int[] i, int f, int t, String e) {
+      kind = k;
+      names = n;
+      indexes = i;
+      from = f;
+      to = t;
+      filter = e;
+    }
+
+    /**
+     * @param n
+     *          property name
+     * @return whether this step selects the property
+     */
+    boolean property (String n) {
+      return kind == Kind.WILDCARD || (kind == Kind.PROPERTY && names.contains (n));
+    }
+
+    /**
+     * @param i
+     *          index
+     * @return whether this step selects the array element, filters are not
+     *         considered
+     */
+    boolean element (int i) {
+      switch (kind) {
+      case WILDCARD:
+        return true;
+      case SLICE:
+        return i >= from && i < to;
+      case INDEX:
+        for (int j : indexes)
+          if (j == i) return true;
+        return false;
+      default:
+        return false;
+      }
+    }
+
+    /**
+     * @return whether this step only applies to objects
+     */
+    boolean object () {
+      return kind == Kind.PROPERTY;
+    }
+
+    /**
+     * @return whether this step only applies to arrays
+     */
+    boolean array () {
+      return kind == Kind.INDEX || kind == Kind.SLICE || kind == Kind.FILTER;
+    }
+
+    /**
+     * @return compiled filter for {@link Kind#FILTER}
+     */
+    Filter predicate () {
+      Filter f = predicate;
+      return f != null ? f : (predicate = Filter.parse (filter));
+    }
+
+    /**
+     * @return typed comparison for {@link Kind#FILTER} or null if the filter
+     *         is not a single comparison of a property to a literal
+     */
+    Comparison comparison () {
+      if (!compared) {
+        comparison = Comparison.parse (filter);
+        compared = true;
+      }
+      return comparison;
+    }
+
+    /**
+     * @return whether this step selects at most one node
+     */
+    boolean definite () {
+      return (kind == Kind.PROPERTY && names.size () == 1) || (kind == Kind.INDEX && indexes.length == 1);
+    }
+  }
+
+  /**
+   * Source expression
+   */
+  final String path;
+  /**
+   * Steps following the root
+   */
+  final List <Step> steps;
+
+  /**
+   * @param p
+   *          source
+   * @param s
+   *          steps
+   */
+  private Selector (String p, List <Step> s) {
+    path = p;
+    steps = unmodifiableList (s);
+  }
+
+  /**
+   * @return whether the path selects at most one node, as jayway defines it a
+   *         trailing multi property step merges into a single object
+   */
+  boolean definite () {
+    for (int i = 0; i < steps.size (); i++)
+      if (!steps.get (i).definite () && !(i == steps.size () - 1 && steps.get (i).kind == Kind.PROPERTY)) return false;
+    return true;
+  }
+
+  /**
+   * @return whether the path ends with a multi property merge
+   */
+  boolean merge () {
+    if (steps.isEmpty ()) return false;
+    Step l = steps.get (steps.size () - 1);
+    return l.kind == Kind.PROPERTY && l.names.size () > 1;
+  }
+
+  /**
+   * @param k
+   *          kinds
+   * @return whether any step is of one of the kinds
+   */
+  boolean has (Kind... k) {
+    for (Step s : steps)
+      for (Kind j : k)
+        if (s.kind == j) return true;
+    return false;
+  }
+
+  /**
+   * @return every property name in the path if it deep scans for properties
+   *         and never enumerates properties otherwise, null if it does not
+   */
+  Set <String> scanned () {
+    if (!has (Kind.SCAN) || has (Kind.WILDCARD, Kind.FILTER)) return null;
+    Set <String> n = new HashSet <> ();
+    for (int i = 0; i < steps.size (); i++)
+      if (steps.get (i).kind == Kind.SCAN && steps.get (i + 1).kind != Kind.PROPERTY) return null;
+      else if (steps.get (i).kind == Kind.PROPERTY) n.addAll (steps.get (i).names);
+    return n;
+  }
+
+  /**
+   * @param p
+   *          path expression
+   * @return parsed selector or null if the expression uses features beyond the
+   *         supported subset or is malformed
+   */
+  static Selector parse (String p) {
+    String e = PathCache.normalize (p);
+    if (e.isEmpty () || e.charAt (0) != '$') return null;
+    List <Step> s = new ArrayList <> ();
+    for (int i = 1, n = e.length (); i < n;) {
+      char c = e.charAt (i);
+      if (c == '.') {
+        if (++i < n && e.charAt (i) == '.') {
+          s.add (new Step (Kind.SCAN, null, null, 0, 0, null));
+          if (++i < n && e.charAt (i) == '[') continue;
+        }
+        if (i < n && e.charAt (i) == '*') {
+          s.add (new Step (Kind.WILDCARD, null, null, 0, 0, null));
+          i++;
+          continue;
+        }
+        int j = i;
+        while (j < n && e.charAt (j) != '.' && e.charAt (j) != '[')
+          j++;
+        String k = e.substring (i, j);
+        if (k.isEmpty () || k.indexOf ('(') >= 0 || k.indexOf (' ') >= 0) return null;
+        s.add (new Step (Kind.PROPERTY, asList (k), null, 0, 0, null));
+        i = j;
+      } else if (c == '[') {
+        int j = close (e, i);
+        if (j < 0) return null;
+        Step t = bracket (e.substring (i + 1, j));
+        if (t == null) return null;
+        s.add (t);
+        i = j + 1;
+      } else return null;
+    }
+    return s.isEmpty () || s.get (s.size () - 1).kind != Kind.SCAN ? new Selector (e, s) : null;
+  }
+
+  /**
+   * @param b
+   *          bracket content
+   * @return step or null
+   */
+  private static Step bracket (String b) {
+    if ("*".equals (b)) return new Step (Kind.WILDCARD, null, null, 0, 0, null);
+    else if (b.startsWith ("?(") && b.endsWith (")")) return new Step (Kind.FILTER, null, null, 0, 0, "[" + b + "]");
+    else if (b.startsWith ("'") || b.startsWith ("\"")) {
+      List <String> n = new ArrayList <> ();
+      for (int i = 0; i < b.length ();) {
+        char q = b.charAt (i);
+        if (q != '\'' && q != '"') return null;
+        StringBuilder k = new StringBuilder ();
+        int j = i + 1;
+        for (; j < b.length () && b.charAt (j) != q; j++)
+          k.append (b.charAt (j) == '\\' && j + 1 < b.length () ? b.charAt (++j) : b.charAt (j));
+        if (j >= b.length ()) return null;
+        n.add (k.toString ());
+        if ((i = j + 1) < b.length () && b.charAt (i++) != ',') return null;
+      }
+      return n.isEmpty () ? null : new Step (Kind.PROPERTY, unmodifiableList (n), null, 0, 0, null);
+    } else try {
+      int c = b.indexOf (':');
+      if (c >= 0) {
+        int f = c == 0 ? 0 : Integer.parseInt (b.substring (0, c));
+        int t = c == b.length () - 1 ? Integer.MAX_VALUE : Integer.parseInt (b.substring (c + 1));
+        return f < 0 || t < 0 || b.indexOf (':', c + 1) >= 0 ? null : new Step (Kind.SLICE, null, null, f, t, null);
+      }
+      String[] v = b.split (",");
+      int[] i = new int[v.length];
+      for (int j = 0; j < v.length; j++)
+        if ((i[j] = Integer.parseInt (v[j])) < 0) return null;
+      return new Step (Kind.INDEX, null, i, 0, 0, null);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param e
+   *          expression
+   * @param i
+   *          position of an opening bracket
+   * @return position of the matching closing bracket or -1
+   */
+  private static int close (String e, int i) {
+    int d = 0;
+    char q = 0;
+    for (int j = i; j < e.length (); j++) {
+      char c = e.charAt (j);
+      if (q != 0) {
+        if (c == '\\') j++;
+        else if (c == q) q = 0;
+      } else if (c == '\'' || c == '"') q = c;
+      else if (c == '[' || c == '(') d++;
+      else if ((c == ']' || c == ')') && --d == 0) return c == ']' ? j : -1;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.BaseStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import us.levk.json.Selector.Kind;
+import us.levk.json.Selector.Step;
+
+/**
+ * Evaluation over entities that are sequences rather than collections:
+ * streams, iterators and iterables that are neither collections nor JSON
+ * trees. Paths whose first step selects elements of the root array are
+ * evaluated element by element as the sequence is consumed and each match is
+ * written as soon as it is found, so memory stays constant; slices and indexes
+ * stop consuming once past their last element. Other paths see the sequence
+ * collected into a list
+ * 
+ * @author levk
+ */
+final class SequenceProjection {
+
+  private SequenceProjection () {}
+
+  /**
+   * @param e
+   *          entity
+   * @return whether the entity is a sequence
+   */
+  static boolean sequence (Object e) {
+    return e instanceof BaseStream || e instanceof Iterator
+           || (e instanceof Iterable && !(e instanceof Collection) && !(e instanceof TreeNode));
+  }
+
+  /**
+   * @param s
+   *          selector
+   * @return whether the path can be evaluated while consuming a sequence: the
+   *         first step selects array elements, indexes are ascending, the
+   *         rest has no deep scan and no filter refers to the root
+   */
+  static boolean supports (Selector s) {
+    if (!PathTrie.supports (s) || s.steps.isEmpty ()) return false;
+    Step f = s.steps.get (0);
+    if (f.kind == Kind.INDEX) for (int i = 1; i < f.indexes.length; i++)
+      if (f.indexes[i] <= f.indexes[i - 1]) return false;
+    for (Step t : s.steps)
+      if (t.kind == Kind.FILTER && t.filter.indexOf ('$') >= 0) return false;
+    return f.kind == Kind.WILDCARD || f.kind == Kind.FILTER || f.kind == Kind.SLICE || f.kind == Kind.INDEX;
+  }
+
+  /**
+   * @param e
+   *          sequence
+   * @param s
+   *          supported selector
+   * @param t
+   *          trie of the single path
+   * @param m
+   *          mapper
+   * @param c
+   *          configuration
+   * @param o
+   *          output
+   * @throws IOException
+   *           on write failure
+   * @throws PathNotFoundException
+   *           if a definite path matched nothing
+   */
+  static void write (Object e, Selector s, PathTrie t, ObjectMapper m, Configuration c, OutputStream o) throws IOException {
+    Step f = s.steps.get (0);
+    int l = f.kind == Kind.SLICE ? f.to : f.kind == Kind.INDEX ? f.indexes[f.indexes.length - 1] + 1 : Integer.MAX_VALUE;
+    boolean d = s.definite (), w = false;
+    JsonProvider p = c.jsonProvider ();
+    JsonGenerator g = m.getFactory ().createGenerator (o).disable (AUTO_CLOSE_TARGET);
+    ObjectWriter r = m.writer ().without (FLUSH_AFTER_WRITE_VALUE);
+    if (!d) g.writeStartArray ();
+    try {
+      Iterator <?> i = iterator (e);
+      for (int n = 0; n < l && i.hasNext () && !(d && w); n++) {
+        Object x = i.next ();
+        if (p instanceof JacksonBeanJsonProvider) ((JacksonBeanJsonProvider) p).visit (1);
+        if (f.kind != Kind.SLICE && f.kind != Kind.INDEX || f.element (n)) for (Object v : t.below (x, c)) {
+          r.writeValue (g, v);
+          w = true;
+          if (d) break;
+        }
+      }
+    } finally {
+      close (e);
+    }
+    if (d && !w) throw new PathNotFoundException ("No results for path: " + s.path);
+    if (!d) g.writeEndArray ();
+    g.flush ();
+  }
+
+  /**
+   * @param e
+   *          sequence
+   * @return elements in a list, the sequence is consumed
+   */
+  static List <Object> list (Object e) {
+    List <Object> l = new ArrayList <> ();
+    try {
+      iterator (e).forEachRemaining (l::add);
+    } finally {
+      close (e);
+    }
+    return l;
+  }
+
+  /**
+   * @param e
+   *          sequence
+   * @return iterator
+   */
+  private static Iterator <?> iterator (Object e) {
+    return e instanceof BaseStream ? ((BaseStream <?, ?>) e).iterator ()
+                                   : e instanceof Iterator ? (Iterator <?>) e : ((Iterable <?>) e).iterator ();
+  }
+
+  /**
+   * @param e
+   *          sequence, closed if it is a stream
+   */
+  private static void close (Object e) {
+    if (e instanceof BaseStream) ((BaseStream <?, ?>) e).close ();
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_NULL_MAP_VALUES;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.levk.json.Selector.Kind;
+import us.levk.json.Selector.Step;
+
+/**
+ * Streaming projection, serializes the original entity through a token filter
+ * built from the path so that only matching subtrees reach the output and no
+ * intermediate result is built. Handles paths made of properties, wildcards,
+ * indexes and slices; a multi property merge is only handled as the sole step.
+ * Matches are written in document order, so paths whose results jayway
+ * returns in request order, several indexes out of ascending order or several
+ * properties before the last step, are left to evaluation; members of a merge
+ * also follow the document rather than the request, which JSON objects do not
+ * consider significant. Note that the whole entity is serialized, so every
+ * property getter is invoked, unlike jayway evaluation over
+ * {@link JacksonBeanJsonProvider}. Paths see the entity as the mapper writes
+ * it while jayway sees every property, so mappers leaving properties out by
+ * default, by inclusion or by dropping null map values, are left to
+ * evaluation; inclusion annotated on a class or configured for a type is not
+ * checked. Supply an instance via a {@link javax.ws.rs.ext.ContextResolver}
+ * to enable streaming for JSON responses
+ * 
+ * @author levk
+ */
+public class StreamingProjection {
+
+  /**
+   * @param s
+   *          selector
+   * @return whether the selector can be streamed
+   */
+  static boolean supports (Selector s) {
+    if (s == null || s.steps.isEmpty () || s.has (Kind.SCAN, Kind.FILTER) || (s.merge () && s.steps.size () != 1))
+      return false;
+    for (Step t : s.steps)
+      if (t.kind == Kind.PROPERTY && t.names.size () > 1 && !s.merge ()) return false;
+      else if (t.kind == Kind.INDEX) for (int i = 1; i < t.indexes.length; i++)
+        if (t.indexes[i] <= t.indexes[i - 1]) return false;
+    return true;
+  }
+
+  /**
+   * @param e
+   *          entity
+   * @param s
+   *          supported selector
+   * @param m
+   *          mapper
+   * @param o
+   *          output
+   * @return false if the path matched nothing or the mapper leaves properties
+   *         out, in which case nothing was written and the caller should
+   *         evaluate the path another way
+   * @throws IOException
+   *           on write failure
+   */
+  boolean write (Object e, Selector s, ObjectMapper m, OutputStream o) throws IOException {
+    JsonInclude.Value v = m.getSerializationConfig ().getDefaultPropertyInclusion ();
+    if (!all (v.getValueInclusion ()) || !all (v.getContentInclusion ()) || !m.isEnabled (WRITE_NULL_MAP_VALUES))
+      return false;
+    JsonGenerator g = m.getFactory ().createGenerator (o).disable (AUTO_CLOSE_TARGET);
+    boolean d = s.definite ();
+    if (!d) g.writeStartArray ();
+    FilteringGeneratorDelegate f = new FilteringGeneratorDelegate (g, filter (s.steps, 0), s.merge (), !d || s.merge ());
+    m.writer ().without (FLUSH_AFTER_WRITE_VALUE).writeValue (f, e);
+    if (d && f.getMatchCount () == 0) return false;
+    if (!d) g.writeEndArray ();
+    g.flush ();
+    return true;
+  }
+
+  /**
+   * @param i
+   *          inclusion
+   * @return whether the inclusion writes every property
+   */
+  private static boolean all (JsonInclude.Include i) {
+    return i == JsonInclude.Include.ALWAYS || i == JsonInclude.Include.USE_DEFAULTS;
+  }
+
+  /**
+   * @param s
+   *          steps
+   * @param i
+   *          position of the next step to match
+   * @return filter
+   */
+  static TokenFilter filter (List <Step> s, int i) {
+    return filter (s, i, NONE);
+  }
+
+  /**
+   * @param s
+   *          steps
+   * @param i
+   *          position of the next step to match
+   * @param x
+   *          filter for excluded array elements, null where the delegate
+   *          tracks excluded containers, as the parser delegate does
+   * @return filter
+   */
+  static TokenFilter filter (List <Step> s, int i, TokenFilter x) {
+    return i == s.size () ? TokenFilter.INCLUDE_ALL : new StepFilter (s, i, x);
+  }
+
+  /**
+   * Filter excluding everything, returned for excluded array elements in place
+   * of null as the generator delegate does not track the context of an array
+   * element container filtered out by null
+   */
+  private static final TokenFilter NONE = new TokenFilter () {
+    @Override
+    public TokenFilter includeProperty (String n) {
+      return null;
+    }
+
+    @Override
+    public TokenFilter includeElement (int i) {
+      return this;
+    }
+
+    @Override
+    protected boolean _includeScalar () {
+      return false;
+    }
+  };
+
+  /**
+   * Filter matching a step and delegating the remainder to the next
+   */
+  private static final class StepFilter extends TokenFilter {
+    /**
+     * Steps
+     */
+    private final List <Step> steps;
+    /**
+     * Position
+     */
+    private final int index;
+    /**
+     * Step to match
+     */
+    private final Step step;
+    /**
+     * Filter for excluded array elements
+     */
+    private final TokenFilter excluded;
+    /**
+     * Filter for the remaining steps
+     */
+    private TokenFilter next;
+
+    /**
+     * @param s
+     *          steps
+     * @param i
+     *          position
+     * @param x
+     *          filter for excluded array elements
+     */
+    StepFilter (List <Step> s, int i, TokenFilter x) {
+      steps = s;
+      step = s.get (index = i);
+      excluded = x;
+    }
+
+    /**
+     * @return filter for the remaining steps
+     */
+    private TokenFilter next () {
+      return next == null ? next = filter (steps, index + 1, excluded) : next;
+    }
+
+    @Override
+    public TokenFilter includeProperty (String n) {
+      return step.property (n) ? next () : null;
+    }
+
+    @Override
+    public TokenFilter includeElement (int i) {
+      return step.element (i) ? next () : excluded;
+    }
+
+    @Override
+    public TokenFilter includeRootValue (int i) {
+      return this;
+    }
+
+    @Override
+    public TokenFilter filterStartObject () {
+      return step.array () ? null : this;
+    }
+
+    @Override
+    public TokenFilter filterStartArray () {
+      return step.object () ? null : this;
+    }
+
+    @Override
+    protected boolean _includeScalar () {
+      return false;
+    }
+  }
+}
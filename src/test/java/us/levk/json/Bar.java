@@ -25,15 +25,35 @@
  */
 package us.levk.json;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static us.levk.json.Foo.f;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.ws.rs.BeanParam;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Path ("/bar")
 public class Bar {
 
+  static final ObjectMapper MAPPER = new ObjectMapper ();
+
   @GET
   public Foo w () {
     return f ("r", f ("c1", f ("c1c1"), f ("c1c2"), f ("c1c3", f ("c1c3c1"))), f ("c2"),
@@ -44,4 +64,143 @@ public class Bar {
   public Baz q () {
     return new Baz ();
   }
+
+  @GET
+  @Path ("/m")
+  public Map <String, Object> m () {
+    Map <String, Object> m = new LinkedHashMap <> ();
+    m.put ("a", new LinkedHashMap <> (singletonMap ("b", "c")));
+    m.put ("items", asList (item (1, 2.5), item (2, 3.0), item (3, null)));
+    m.put ("x", 1);
+    m.put ("y", "y");
+    m.put ("z", true);
+    return m;
+  }
+
+  @GET
+  @Path ("/e")
+  public Response e () {
+    return Response.ok (m ()).tag ("v1").build ();
+  }
+
+  @GET
+  @Path ("/g")
+  public Response g () {
+    Map <String, Object> m = m ();
+    m.put ("items", asList (singletonMap ("id", 4)));
+    return Response.ok (m).tag ("v1").build ();
+  }
+
+  public static class Document extends LinkedHashMap <String, Object> implements Versioned {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Object version () {
+      return get ("x");
+    }
+  }
+
+  @GET
+  @Path ("/v")
+  public Document v () {
+    Document d = new Document ();
+    d.putAll (m ());
+    return d;
+  }
+
+  @GET
+  @Path ("/s")
+  @SuppressWarnings ("unchecked")
+  public Stream <Object> s () {
+    return ((List <Object>) m ().get ("items")).stream ();
+  }
+
+  @GET
+  @Path ("/i")
+  @SuppressWarnings ("unchecked")
+  public Iterator <Object> i () {
+    return ((List <Object>) m ().get ("items")).iterator ();
+  }
+
+  @GET
+  @Path ("/n")
+  public Stream <Map <String, Object>> n () {
+    return Stream.iterate (1, i -> i + 1).map (i -> item (i, i * 1.5));
+  }
+
+  @GET
+  @Path ("/p")
+  @JsonPathProjection (value = "$.items[*].id", allowed = { "$.x", "$.items[*].price" })
+  public Map <String, Object> p () {
+    return m ();
+  }
+
+  @GET
+  @Path ("/k")
+  @JsonPathProjection ("$.x")
+  public Map <String, Foo> k () {
+    return singletonMap ("x", null);
+  }
+
+  @GET
+  @Path ("/j")
+  @SuppressWarnings ("unchecked")
+  public Map <String, Object> j (@BeanParam Projection p) {
+    Map <String, Object> m = m ();
+    if (p.properties () != null) m.keySet ().retainAll (p.properties ());
+    if (m.containsKey ("items")) {
+      List <Object> i = (List <Object>) m.get ("items");
+      m.put ("items", i.subList (0, Math.min (i.size (), p.limit ("items"))));
+    }
+    return m;
+  }
+
+  @GET
+  @Path ("/a")
+  @SuppressWarnings ("unchecked")
+  public Object[] a () {
+    return ((List <Object>) m ().get ("items")).toArray ();
+  }
+
+  @GET
+  @Path ("/o")
+  @Produces (APPLICATION_JSON)
+  public Map <String, Object> o () {
+    return m ();
+  }
+
+  @GET
+  @Path ("/t")
+  @Produces (APPLICATION_JSON)
+  public JsonNode t () {
+    return MAPPER.valueToTree (m ());
+  }
+
+  @GET
+  @Path ("/r/s")
+  @Produces (APPLICATION_JSON)
+  public String rs () throws JsonProcessingException {
+    return MAPPER.writeValueAsString (m ());
+  }
+
+  @GET
+  @Path ("/r/b")
+  @Produces (APPLICATION_JSON)
+  public byte[] rb () throws JsonProcessingException {
+    return MAPPER.writeValueAsBytes (m ());
+  }
+
+  @GET
+  @Path ("/r/i")
+  @Produces (APPLICATION_JSON)
+  public InputStream ri () throws JsonProcessingException {
+    return new ByteArrayInputStream (rb ());
+  }
+
+  static Map <String, Object> item (int i, Double p) {
+    Map <String, Object> m = new LinkedHashMap <> ();
+    m.put ("id", i);
+    m.put ("price", p);
+    return m;
+  }
 }
@@ -26,6 +26,7 @@
 package us.levk.json;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -34,8 +35,11 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 
 public class BazSerialzer extends JsonSerializer <Baz> {
 
+  static final AtomicInteger serialized = new AtomicInteger ();
+
   @Override
   public void serialize (Baz v, JsonGenerator g, SerializerProvider s) throws IOException, JsonProcessingException {
+    serialized.incrementAndGet ();
     g.writeStartObject ();
     g.writeStringField ("foo", "foo");
     g.writeStringField ("bar", "bar");
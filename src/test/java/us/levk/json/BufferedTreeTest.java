@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+public class BufferedTreeTest {
+
+  ObjectMapper m = new ObjectMapper ();
+
+  Object read (String j) throws Exception {
+    TokenBuffer b = new TokenBuffer (m, false);
+    m.writeTree (b, m.readTree (j));
+    return BufferedTree.read (b, m);
+  }
+
+  @Test
+  public void tree () throws Exception {
+    String j = "{\"a\":{\"b\":[1,2.5,\"c\",null,true,{}]},\"d\":[],\"e\":null,\"a\":{\"f\":[[1]]}}";
+    Map <?, ?> t = (Map <?, ?>) read (j);
+    assertThat (t, is (m.readValue (j, Object.class)));
+    assertThat (t.keySet (), is (m.readValue (j, Map.class).keySet ()));
+    assertThat (t.get ("a"), sameInstance (t.get ("a")));
+    assertThat (((List <?>) ((Map <?, ?>) t.get ("a")).get ("f")).get (0), is (asList (1)));
+    assertThat (t.containsKey ("e"), is (true));
+    assertThat (t.get ("x"), is (nullValue ()));
+    assertThat (m.writeValueAsString (t), is ("{\"a\":{\"f\":[[1]]},\"d\":[],\"e\":null}"));
+  }
+
+  @Test
+  public void scalars () throws Exception {
+    assertThat (read ("1"), is (1));
+    assertThat (read ("\"a\""), is ("a"));
+    assertThat (read ("[1.5]"), is (asList (1.5)));
+    m.enable (DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    assertThat (read ("[1.5]"), is (asList (new BigDecimal ("1.5"))));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ComparisonTest {
+
+  @Test
+  public void parse () {
+    assertThat (Comparison.parse ("[?(@.price<10)]"), is (notNullValue ()));
+    assertThat (Comparison.parse ("[?(@['a b']=='c')]").name, is ("a b"));
+    assertThat (Comparison.parse ("[?(@.a>0.1)]"), is (notNullValue ()));
+    assertThat (Comparison.parse ("[?(@.a>0.10000000000000000001)]"), is (nullValue ()));
+    assertThat (Comparison.parse ("[?(@.a<'b')]"), is (nullValue ()));
+    assertThat (Comparison.parse ("[?(@.a==null)]"), is (nullValue ()));
+    assertThat (Comparison.parse ("[?(@.a==$.b)]"), is (nullValue ()));
+    assertThat (Comparison.parse ("[?(@.a.b==1)]"), is (nullValue ()));
+    assertThat (Comparison.parse ("[?(@.a==1&&@.b==2)]"), is (nullValue ()));
+  }
+
+  @Test
+  public void test () {
+    Comparison c = Comparison.parse ("[?(@.a<=2)]");
+    assertThat (c.test (2L), is (1));
+    assertThat (c.test (2.5), is (0));
+    assertThat (c.test ((Object) 1), is (1));
+    assertThat (c.test ((Object) 2f), is (Comparison.UNKNOWN));
+    assertThat (c.test ((Object) "1"), is (Comparison.UNKNOWN));
+    assertThat (c.test ((Object) null), is (Comparison.UNKNOWN));
+    assertThat (c.test (Double.NaN), is (Comparison.UNKNOWN));
+    assertThat (Comparison.parse ("[?(@.a==-0.0)]").test (0.0), is (1));
+    assertThat (Comparison.parse ("[?(@.a!='x')]").test ((Object) "y"), is (1));
+    assertThat (Comparison.parse ("[?(@.a==true)]").test ((Object) false), is (0));
+  }
+}
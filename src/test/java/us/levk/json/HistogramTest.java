@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void buckets () {
+    for (long v : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE }) {
+      int i = Histogram.index (v);
+      assertThat (v + "", v <= Histogram.upper (i) && (i == 0 || v > Histogram.upper (i - 1)), is (true));
+      assertThat (v + "", Histogram.upper (i) - v <= v / 8, is (true));
+    }
+  }
+
+  @Test
+  public void quantiles () {
+    Histogram h = new Histogram ();
+    for (int i = 1; i <= 100; i++)
+      h.record (i);
+    h.record (-1);
+    assertThat (h.getCount (), is (100L));
+    assertThat (h.getMean (), is (50.5));
+    assertThat (h.getMax (), is (100L));
+    assertThat (h.getP50 (), is (51L));
+    assertThat (h.getP99 (), is (100L));
+  }
+}
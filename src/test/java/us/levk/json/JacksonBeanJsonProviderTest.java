@@ -26,20 +26,51 @@
 package us.levk.json;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.JsonPath;
 
 public class JacksonBeanJsonProviderTest {
 
@@ -49,6 +80,103 @@ public class JacksonBeanJsonProviderTest {
   public void getArrayIndex () {
     assertThat (p.getArrayIndex (asList ("foo", "bar"), 1), is ("bar"));
     assertThat (p.getArrayIndex (new int[] { 1, 2, 3 }, 1), is (2));
+    assertThat (p.getArrayIndex (new double[] { 1, 2, 3 }, 2), is (3.0));
+    assertThat (p.getArrayIndex (new char[] { 'a', 'b' }, 0), is ('a'));
+    assertThat (p.getArrayIndex (new String[] { "a", "b" }, 1), is ("b"));
+  }
+
+  @Test
+  public void tree () {
+    Object m = new Bar ().m ();
+    JsonNode t = new ObjectMapper ().valueToTree (m);
+    assertTrue (p.isMap (t));
+    assertTrue (p.isArray (t.get ("items")));
+    assertFalse (p.isMap (t.get ("items")));
+    assertThat (p.getMapValue (t, "x"), is (1));
+    assertThat (p.getMapValue (t, "q"), is (JacksonBeanJsonProvider.UNDEFINED));
+    assertThat (p.getArrayIndex (t.get ("items"), 1), is (t.get ("items").get (1)));
+    assertThat (p.length (t), is (5));
+    assertThat (p.getPropertyKeys (t), is (asList ("a", "items", "x", "y", "z")));
+    Configuration c = Configuration.builder ().jsonProvider (p).build ();
+    for (String s : new String[] { "$.a.b", "$.items[*].id", "$.items[?(@.price > 2.6)].id", "$.items[?(@.price)]",
+                                   "$..price", "$['x','y','z']", "$.items[0:2]", "$.items.length()" })
+      assertThat (s, new ObjectMapper ().valueToTree (JsonPath.compile (s).read (t, c)),
+                  is ((Object) new ObjectMapper ().valueToTree (JsonPath.compile (s).read (m, c))));
+    ObjectNode o = (ObjectNode) t.get ("a");
+    p.setProperty (o, "d", asList (1));
+    p.setArrayIndex (o.get ("d"), 1, "e");
+    p.removeProperty (o, "b");
+    assertThat (o.toString (), is ("{\"d\":[1,\"e\"]}"));
+  }
+
+  enum Color {
+    RED, GREEN
+  }
+
+  public static class Holder {
+    public Set <String> tags = new LinkedHashSet <> (asList ("a", "b", "c"));
+    public Deque <Integer> queue = new ArrayDeque <> (asList (3, 1, 2));
+    public Optional <Getter> getter = Optional.of (new Getter ());
+    public Optional <String> none = Optional.empty ();
+    public AtomicReference <String> ref = new AtomicReference <> ("r");
+    public Map <Integer, String> ids = new TreeMap <> ();
+    public Map <Color, Integer> colors = new EnumMap <> (Color.class);
+    public Map.Entry <String, Integer> entry = new SimpleEntry <> ("k", 7);
+    public Iterable <Integer> range = () -> asList (5, 6).iterator ();
+    public List <Optional <Map <String, Integer>>> l = asList (Optional.of (singletonMap ("x", 7)),
+                                                               Optional.of (singletonMap ("x", 8)));
+    public Map <Integer, String> nulls = new HashMap <> ();
+
+    {
+      ids.put (1, "one");
+      ids.put (20, "twenty");
+      colors.put (Color.GREEN, 2);
+      nulls.put (null, "none");
+      nulls.put (3, "three");
+    }
+  }
+
+  static Object read (Object o, String s, Configuration c) {
+    return JsonPath.compile (s).read (o, c);
+  }
+
+  @Test
+  public void collections () {
+    Holder h = new Holder ();
+    assertTrue (p.isArray (h.tags));
+    assertTrue (p.isArray (h.range));
+    assertFalse (p.isMap (h.queue));
+    assertTrue (p.isMap (h.entry));
+    assertThat (p.length (h.tags), is (3));
+    assertThat (p.length (h.range), is (2));
+    assertThat (p.getArrayIndex (h.queue, 2), is (2));
+    assertThat (p.getMapValue (h, "getter"), is (instanceOf (Getter.class)));
+    assertThat (p.getMapValue (h, "none"), is (nullValue ()));
+    assertThat (p.getMapValue (h, "ref"), is ("r"));
+    assertThat (p.getPropertyKeys (h.ids), is (asList ("1", "20")));
+    assertThat (p.getMapValue (h.ids, "20"), is ("twenty"));
+    assertThat (p.getMapValue (h.ids, "020"), is (JacksonBeanJsonProvider.UNDEFINED));
+    assertThat (p.getMapValue (h.ids, "x"), is (JacksonBeanJsonProvider.UNDEFINED));
+    assertThat (p.getMapValue (h.colors, "GREEN"), is (2));
+    assertThat (p.getMapValue (h.colors, "BLUE"), is (JacksonBeanJsonProvider.UNDEFINED));
+    assertThat (p.getPropertyKeys (h.entry), is (asList ("k")));
+    assertThat (p.getMapValue (h.entry, "k"), is (7));
+    assertThat (p.getMapValue (h.nulls, "3"), is ("three"));
+    Configuration c = Configuration.builder ().jsonProvider (p.fork ()).build ();
+    assertThat (read (h, "$.tags[1:]", c), is (asList ("b", "c")));
+    assertThat (read (h, "$.queue[*]", c), is (asList (3, 1, 2)));
+    assertThat (read (h, "$.range[1]", c), is (6));
+    assertThat (read (h, "$.getter.foo", c), is (1));
+    assertThat (read (h, "$.ids.*", c), is (asList ("one", "twenty")));
+    assertThat (read (h, "$.ids['1']", c), is ("one"));
+    assertThat (read (h, "$.colors.GREEN", c), is (2));
+    assertThat (read (h, "$.entry.k", c), is (7));
+    assertThat (read (h, "$.l[?(@.x == 7)]", c), is (asList (singletonMap ("x", 7))));
+    assertThat (read (h, "$.l[*].x", c), is (asList (7, 8)));
+    assertThat (read (h, "$.nulls['3']", c), is ("three"));
+    assertThat (read (asList (new SimpleEntry <> (1, 2), new SimpleEntry <> (2, 3)), "$[?(@['2'] == 3)]", c)
+                        .toString (),
+                is ("[2=3]"));
   }
 
   @Test
@@ -58,6 +186,67 @@ public class JacksonBeanJsonProviderTest {
     }, "foo"), is ("foo"));
   }
 
+  public static class Getter {
+    public int getFoo () {
+      return 1;
+    }
+
+    @JsonProperty
+    String bar () {
+      return "bar";
+    }
+  }
+
+  @Test
+  public void getMapValueAccessors () {
+    assertThat (p.getMapValue (new Getter (), "foo"), is (1));
+    assertThat (p.getMapValue (new Getter (), "bar"), is ("bar"));
+    assertThat (p.getMapValue (new Getter (), "baz"), is (JacksonBeanJsonProvider.UNDEFINED));
+  }
+
+  public static class Throwing {
+    public String getUnchecked () {
+      throw new IllegalStateException ();
+    }
+
+    public String getChecked () throws IOException {
+      throw new IOException ();
+    }
+
+    public long getCount () {
+      throw new IllegalStateException ();
+    }
+
+    @JsonProperty
+    String hidden () {
+      throw new IllegalStateException ();
+    }
+
+    @JsonProperty
+    double rate () {
+      throw new IllegalStateException ();
+    }
+  }
+
+  @Test
+  public void getMapValueThrowing () {
+    for (String k : asList ("unchecked", "checked", "count", "hidden", "rate"))
+      try {
+        p.getMapValue (new Throwing (), k);
+        fail (k);
+      } catch (InvalidJsonException e) {
+        assertThat (k, e.getCause (), is (instanceOf (k.equals ("checked") ? IOException.class
+                                                                           : IllegalStateException.class)));
+      }
+    for (String k : asList ("count", "rate"))
+      try {
+        p.compare (new Throwing (), Comparison.parse ("[?(@." + k + ">1)]"));
+        fail (k);
+      } catch (InvalidJsonException e) {
+        assertThat (k, e.getCause (), is (instanceOf (IllegalStateException.class)));
+      }
+  }
+
   @Test
   public void getPropertyKeys () {
     assertThat (p.getPropertyKeys (new Object () {
@@ -104,6 +293,15 @@ public class JacksonBeanJsonProviderTest {
     assertThat ((Iterable <Integer>) p.toIterable (new int[] { 1, 2, 3 }),
                 allOf (hasItem (1), hasItem (2), hasItem (3)));
     assertThat ((Iterable <Integer>) p.toIterable (asList (1, 2, 3)), allOf (hasItem (1), hasItem (2), hasItem (3)));
+    assertThat (p.toIterable (new long[] { 1, 2, 3 }), is (asList (1L, 2L, 3L)));
+    assertThat (p.toIterable (new boolean[] { true, false }), is (asList (true, false)));
+  }
+
+  @Test
+  public void slice () {
+    Configuration c = Configuration.builder ().jsonProvider (p).build ();
+    assertThat (JsonPath.compile ("$[1:3]").read (new double[] { 1, 2, 3, 4 }, c), is (asList (2.0, 3.0)));
+    assertThat (ArrayViews.of (new double[] { 1, 2, 3, 4 }).subList (3, 4), is (asList (4.0)));
   }
 
   @Test
@@ -121,4 +319,183 @@ public class JacksonBeanJsonProviderTest {
     p.removeProperty (m, "foo");
     assertFalse (m.containsKey ("foo"));
   }
+
+  @Test
+  public void type () {
+    ObjectMapper m = new ObjectMapper ();
+    JacksonBeanJsonProvider p = new JacksonBeanJsonProvider (m);
+    BeanType t = p.type (Foo.class);
+    assertSame (t, p.type (Foo.class));
+    assertThat (t.names (), is (asList ("v", "c", "q")));
+    m.configure (MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+    assertNotSame (t, p.type (Foo.class));
+    assertThat (p.type (Foo.class).names (), is (asList ("c", "q", "v")));
+  }
+
+  public static class Tabled {
+    public int a = 1;
+
+    public String getB () {
+      return "b";
+    }
+  }
+
+  public static class TabledAccessors implements JsonPathAccessors {
+    @Override
+    public Class <?> type () {
+      return Tabled.class;
+    }
+
+    @Override
+    public String[] names () {
+      return new String[] { "a", "b" };
+    }
+
+    @Override
+    public Object get (Object o, int i) {
+      return i == 0 ? ((Tabled) o).a : ((Tabled) o).getB ();
+    }
+  }
+
+  @Test
+  public void generated () {
+    ObjectMapper m = new ObjectMapper ();
+    JacksonBeanJsonProvider p = new JacksonBeanJsonProvider (m);
+    BeanType t = p.type (Tabled.class);
+    assertThat (t.generated, is (instanceOf (TabledAccessors.class)));
+    assertThat (t.properties.length, is (0));
+    assertThat (p.getPropertyKeys (new Tabled ()), is (asList ("a", "b")));
+    Configuration c = Configuration.builder ().jsonProvider (p.fork ()).build ();
+    assertThat (read (asList (new Tabled ()), "$[?(@.a == 1)].b", c), is (asList ("b")));
+    c = Configuration.builder ().jsonProvider (p.fork (singleton ("b"))).build ();
+    assertThat (read (singletonMap ("x", new Tabled ()), "$..b", c), is (asList ("b")));
+    m.setPropertyNamingStrategy (PropertyNamingStrategy.UPPER_CAMEL_CASE);
+    assertThat (p.type (Tabled.class).generated, is (nullValue ()));
+    assertThat (p.getPropertyKeys (new Tabled ()), is (asList ("A", "B")));
+  }
+
+  @Test
+  public void generatedSerializer () {
+    SimpleModule d = new SimpleModule ().addSerializer (Tabled.class, new StdSerializer <Tabled> (Tabled.class) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public void serialize (Tabled v, JsonGenerator g, SerializerProvider p) throws IOException {
+        g.writeStartObject ();
+        g.writeNumberField ("c", v.a);
+        g.writeEndObject ();
+      }
+    });
+    ObjectMapper m = new ObjectMapper ().registerModule (d);
+    JacksonBeanJsonProvider p = new JacksonBeanJsonProvider (m);
+    assertThat (p.type (Tabled.class).generated, is (nullValue ()));
+    assertThat (new ArrayList <> (p.getPropertyKeys (new Tabled ())), is (asList ("c")));
+  }
+
+  @Test
+  public void custom () {
+    Baz b = new Baz ();
+    JacksonBeanJsonProvider f = p.fork ();
+    int s = BazSerialzer.serialized.get ();
+    assertThat (f.getPropertyKeys (b), allOf (hasItem ("foo"), hasItem ("bar")));
+    assertThat (f.getMapValue (b, "foo"), is ("foo"));
+    assertThat (f.getMapValue (b, "bar"), is ("bar"));
+    assertThat (f.length (b), is (2));
+    assertThat (BazSerialzer.serialized.get (), is (s + 1));
+    assertThat (p.getMapValue (b, "foo"), is ("foo"));
+    assertThat (p.fork ().getMapValue (b, "foo"), is ("foo"));
+    assertThat (BazSerialzer.serialized.get (), is (s + 3));
+    assertSame (f.type (Baz.class), p.type (Baz.class));
+  }
+
+  public static final class Tree {
+    @JsonProperty String v;
+    @JsonProperty Tree[] c;
+    @JsonProperty Twig t;
+  }
+
+  public static final class Twig {
+    public int getFoo () {
+      return 1;
+    }
+
+    @JsonProperty
+    String bar () {
+      return "bar";
+    }
+  }
+
+  public static class Scanned {
+    @JsonProperty Tree tree;
+    @JsonProperty Object any;
+    @JsonProperty Map <String, String> map;
+    @JsonProperty int[] ints;
+    @JsonProperty Twig twig;
+  }
+
+  @Test
+  public void pruned () {
+    assertThat (p.fork (new HashSet <> (asList ("v"))).getPropertyKeys (new Scanned ()),
+                is (asList ("tree", "any", "map")));
+    assertThat (p.fork (new HashSet <> (asList ("bar"))).getPropertyKeys (new Scanned ()),
+                is (asList ("tree", "any", "map", "twig")));
+    assertThat (p.fork (new HashSet <> (asList ("q"))).getPropertyKeys (new Scanned ()),
+                is (asList ("any", "map")));
+    assertThat (p.fork (new HashSet <> (asList ("v"))).getPropertyKeys (new Tree ()), is (asList ("v", "c")));
+    assertThat (p.fork ().getPropertyKeys (new Tree ()), is (asList ("v", "c", "t")));
+  }
+
+  public static final class Leaf {
+    public int getId () {
+      return 7;
+    }
+  }
+
+  public static final class Wrapped {
+    public int getId () {
+      return 1;
+    }
+
+    public Optional <Leaf> getLeaf () {
+      return Optional.of (new Leaf ());
+    }
+
+    public AtomicReference <Leaf> getRef () {
+      return new AtomicReference <> (new Leaf ());
+    }
+  }
+
+  @Test
+  public void prunedReference () {
+    assertThat (new HashSet <> (p.fork (singleton ("id")).getPropertyKeys (new Wrapped ())),
+                is (new HashSet <> (asList ("id", "leaf", "ref"))));
+    Configuration c = Configuration.builder ().jsonProvider (p.fork (singleton ("id"))).build ();
+    Configuration u = Configuration.builder ().jsonProvider (p.fork ()).build ();
+    assertThat (read (new Wrapped (), "$..id", c), is (read (new Wrapped (), "$..id", u)));
+  }
+
+  public static class Base {
+    public int getA () {
+      return 0;
+    }
+  }
+
+  public static class Sub extends Base {
+    public int getX () {
+      return 1;
+    }
+  }
+
+  public static class Open {
+    public Base getB () {
+      return new Sub ();
+    }
+  }
+
+  @Test
+  public void prunedSubclass () {
+    assertThat (p.fork (singleton ("x")).getPropertyKeys (new Open ()), is (asList ("b")));
+    Configuration c = Configuration.builder ().jsonProvider (p.fork (singleton ("x"))).build ();
+    assertThat (read (new Open (), "$..x", c), is (asList (1)));
+  }
 }
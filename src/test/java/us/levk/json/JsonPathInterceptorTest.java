@@ -25,26 +25,45 @@
  */
 package us.levk.json;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.hamcrest.CoreMatchers.is;
 import static org.jboss.resteasy.mock.MockDispatcherFactory.createDispatcher;
 import static org.jboss.resteasy.mock.MockHttpRequest.get;
 import static org.jboss.resteasy.mock.MockHttpRequest.post;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.ws.rs.ext.ContextResolver;
 
 import org.jboss.resteasy.core.Dispatcher;
 import org.jboss.resteasy.mock.MockHttpRequest;
 import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.UnhandledException;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
 
 public class JsonPathInterceptorTest {
 
@@ -55,6 +74,7 @@ public class JsonPathInterceptorTest {
   public void setup () {
     d = createDispatcher ();
     d.getProviderFactory ().register (JsonPathInterceptor.class);
+    d.getProviderFactory ().register (JsonPathProjections.class);
     d.getProviderFactory ().register (JacksonJsonProvider.class);
     d.getRegistry ().addSingletonResource (new Bar ());
     m = new ObjectMapper ();
@@ -73,9 +93,383 @@ public class JsonPathInterceptorTest {
                 is (new HashSet <> (asList ("c1c1", "c1c2", "c1c3", "c3c1"))));
   }
 
+  @Test
+  public void scanBean () throws Exception {
+    assertThat (m.readerFor (Set.class).readValue (invoke (get ("/bar").accept (APPLICATION_JSON).header ("JSONPath",
+                                                                                                          "$.c..c..v")).getOutput ()),
+                is (new HashSet <> (asList ("c1c1", "c1c2", "c1c3", "c1c3c1", "c3c1", "c3c1c1"))));
+  }
+
   @Test
   public void filterCustom () throws Exception {
     assertThat (invoke (post ("/bar").accept (APPLICATION_JSON).header ("JSONPath", "$.foo")).getContentAsString (),
                 is ("\"foo\""));
   }
+
+  @Test
+  public void pathCache () throws Exception {
+    PathCache c = new PathCache ();
+    d.getProviderFactory ().register (new ContextResolver <PathCache> () {
+      @Override
+      public PathCache getContext (Class <?> t) {
+        return c;
+      }
+    });
+    invoke (get ("/bar").accept (APPLICATION_JSON).header ("JSONPath", "$.c[*].v"));
+    invoke (get ("/bar").accept (APPLICATION_JSON).header ("JSONPath", "$.c[ * ].v"));
+    assertThat (c.misses (), is (1L));
+    assertThat (c.hits (), is (1L));
+  }
+
+  JsonNode read (String u, String j) throws Exception {
+    return m.readTree (invoke (get (u).accept (APPLICATION_JSON).header ("JSONPath", j)).getOutput ());
+  }
+
+  @Test
+  public void streaming () throws Exception {
+    String[] p = { "$.a.b", "$.a", "$.items[*].id", "$.items[*].price", "$['x','y']", "$.items[1]", "$.items[0:2].price",
+                   "$.items[*]", "$.*", "$.items[0,2].id" };
+    String[] q = { "$.items[2,0].id", "$.items[1,1].id", "$['a','x'].b" };
+    JsonNode[] e = new JsonNode[p.length], f = new JsonNode[q.length];
+    for (int i = 0; i < p.length; i++)
+      e[i] = read ("/bar/m", p[i]);
+    for (int i = 0; i < q.length; i++)
+      f[i] = read ("/bar/m", q[i]);
+    AtomicInteger w = new AtomicInteger ();
+    d.getProviderFactory ().register (new ContextResolver <StreamingProjection> () {
+      @Override
+      public StreamingProjection getContext (Class <?> t) {
+        return new StreamingProjection () {
+          @Override
+          boolean write (Object e, Selector s, ObjectMapper m, OutputStream o) throws IOException {
+            w.incrementAndGet ();
+            return super.write (e, s, m, o);
+          }
+        };
+      }
+    });
+    for (int i = 0; i < p.length; i++)
+      assertThat (p[i], read ("/bar/m", p[i]), is (e[i]));
+    assertThat (w.get (), is (p.length));
+    for (int i = 0; i < q.length; i++)
+      assertThat (q[i], read ("/bar/m", q[i]), is (f[i]));
+    assertThat (f[0], is (m.readTree ("[3,1]")));
+    assertThat (read ("/bar/m", "$..id"), is (m.readTree ("[1,2,3]")));
+    assertThat (w.get (), is (p.length));
+    assertThat (invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$['y','x']")).getContentAsString (),
+                is ("{\"x\":1,\"y\":\"y\"}"));
+  }
+
+  @Test
+  public void budget () throws Exception {
+    AtomicReference <Budget> b = new AtomicReference <> ();
+    d.getProviderFactory ().register (new ContextResolver <Budget> () {
+      @Override
+      public Budget getContext (Class <?> t) {
+        return b.get ();
+      }
+    });
+    b.set (new Budget (100, 10, 1000));
+    assertThat (read ("/bar/m", "$.items[*].id"), is (m.readTree ("[1,2,3]")));
+    b.set (new Budget (4, 0, 0));
+    MockHttpResponse r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (r.getStatus (), is (400));
+    assertThat (r.getContentAsString (), is ("JSONPath evaluation exceeded 4 nodes"));
+    assertThat (b.get ().aborts (), is (1L));
+    b.set (new Budget (0, 2, 0));
+    r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (r.getStatus (), is (400));
+    assertThat (b.get ().aborts (), is (1L));
+  }
+
+  @Test
+  public void statistics () throws Exception {
+    JsonPathStatistics s = new JsonPathStatistics (true);
+    d.getProviderFactory ().register (new ContextResolver <JsonPathListener> () {
+      @Override
+      public JsonPathListener getContext (Class <?> t) {
+        return s;
+      }
+    });
+    MockHttpResponse r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (m.readTree (r.getOutput ()), is (m.readTree ("[1,2,3]")));
+    assertThat (r.getOutputHeaders ().getFirst ("Server-Timing").toString ()
+                 .matches ("jsonpath-compile;dur=\\d+\\.\\d{3}, jsonpath-eval;dur=\\d+\\.\\d{3}"), is (true));
+    invoke (get ("/bar").accept (APPLICATION_JSON).header ("JSONPath", "$.c[*].v"));
+    assertThat (s.getEvaluationTime ().getCount (), is (2L));
+    assertThat (s.getResults ().getMax (), is (3L));
+    assertThat (s.getNodes ().getCount (), is (2L));
+    assertThat (s.getReads ().getMax () > 0, is (true));
+    ObjectName n = new ObjectName (JsonPathStatistics.NAME + ",name=test");
+    s.register (n);
+    try {
+      assertThat (((CompositeData) getPlatformMBeanServer ().getAttribute (n, "Results")).get ("count"), is (2L));
+    } finally {
+      getPlatformMBeanServer ().unregisterMBean (n);
+    }
+  }
+
+  @Test
+  public void streamingInclusion () throws Exception {
+    ObjectMapper n = new ObjectMapper ().setDefaultPropertyInclusion (JsonInclude.Value.construct (NON_NULL, NON_NULL));
+    d.getProviderFactory ().register (new ContextResolver <ObjectMapper> () {
+      @Override
+      public ObjectMapper getContext (Class <?> t) {
+        return n;
+      }
+    });
+    d.getProviderFactory ().register (new ContextResolver <StreamingProjection> () {
+      @Override
+      public StreamingProjection getContext (Class <?> t) {
+        return new StreamingProjection ();
+      }
+    });
+    assertThat (read ("/bar/m", "$.items[*].price"), is (m.readTree ("[2.5,3.0,null]")));
+  }
+
+  @Test
+  public void compileTime () throws Exception {
+    AtomicLong c = new AtomicLong (-1);
+    d.getProviderFactory ().register (new ContextResolver <JsonPathListener> () {
+      @Override
+      public JsonPathListener getContext (Class <?> t) {
+        return (p, k, e, n, r, f) -> c.set (k);
+      }
+    });
+    d.getProviderFactory ().register (new ContextResolver <PathCache> () {
+      @Override
+      public PathCache getContext (Class <?> t) {
+        return new PathCache () {
+          @Override
+          Entry entry (String p) {
+            try {
+              Thread.sleep (5);
+            } catch (InterruptedException e) {
+              throw new IllegalStateException (e);
+            }
+            return super.entry (p);
+          }
+        };
+      }
+    });
+    assertThat (read ("/bar/m", "$.items[*].id"), is (m.readTree ("[1,2,3]")));
+    assertThat (c.get () >= MILLISECONDS.toNanos (5), is (true));
+  }
+
+  @Test
+  public void multiple () throws Exception {
+    MockHttpRequest q = get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.a.b, $['x','y']")
+                                      .header ("JSONPath", "$.items[*].id");
+    assertThat (m.readTree (invoke (q).getOutput ()),
+                is (m.readTree ("{\"$.a.b\":\"c\",\"$['x','y']\":{\"x\":1,\"y\":\"y\"},\"$.items[*].id\":[1,2,3]}")));
+  }
+
+  @Test
+  public void projections () throws Exception {
+    PathCache c = new PathCache ();
+    d.getProviderFactory ().register (new ContextResolver <PathCache> () {
+      @Override
+      public PathCache getContext (Class <?> t) {
+        return c;
+      }
+    });
+    assertThat (m.readTree (invoke (get ("/bar/p").accept (APPLICATION_JSON)).getOutput ()).toString (), is ("[1,2,3]"));
+    assertThat (read ("/bar/p", "$.x").toString (), is ("1"));
+    assertThat (read ("/bar/p", "$.items[ * ].price").toString (), is ("[2.5,3.0,null]"));
+    MockHttpResponse r = invoke (get ("/bar/p").accept (APPLICATION_JSON).header ("JSONPath", "$.y"));
+    assertThat (r.getStatus (), is (400));
+    assertThat (r.getContentAsString (), is ("JSONPath not allowed: $.y"));
+    assertThat (c.misses () + c.hits (), is (0L));
+  }
+
+  @Test
+  public void projection () throws Exception {
+    assertThat (read ("/bar/j", "$.items[0:2].id").toString (), is ("[1,2]"));
+    assertThat (read ("/bar/j", "$['x','a']").toString (), is ("{\"x\":1,\"a\":{\"b\":\"c\"}}"));
+    assertThat (m.readTree (invoke (get ("/bar/j").accept (APPLICATION_JSON)).getOutput ()).size (), is (5));
+  }
+
+  @Test
+  public void warm () throws Exception {
+    JacksonBeanJsonProvider p = new JacksonBeanJsonProvider (new ObjectMapper ());
+    d.getProviderFactory ().register (new ContextResolver <JsonProvider> () {
+      @Override
+      public JsonProvider getContext (Class <?> t) {
+        return p;
+      }
+    });
+    assertThat (p.known (Foo.class), is (false));
+    assertThat (invoke (get ("/bar/k").accept (APPLICATION_JSON)).getContentAsString (), is ("null"));
+    assertThat (p.known (Foo.class), is (true));
+  }
+
+  @Test
+  public void tree () throws Exception {
+    for (String p : new String[] { "$.items[*].id", "$.items[?(@.price > 2.6)]", "$['x','a']", "$..b", "$.items[1:]" })
+      assertThat (p, read ("/bar/t", p), is (read ("/bar/m", p)));
+  }
+
+  @Test
+  public void raw () throws Exception {
+    String[] p = { "$.a.b", "$.a", "$.items[*].id", "$.items[1]", "$.items[0:2].price", "$.*", "$.items[*]",
+                   "$['x','y']", "$.items[?(@.price > 2.6)].id", "$..id", "$.items.length()", "$.a['b','q']" };
+    for (String j : p)
+      for (String u : new String[] { "/bar/r/s", "/bar/r/b", "/bar/r/i" })
+        assertThat (j + " " + u, read (u, j), is (read ("/bar/m", j)));
+    for (String u : new String[] { "/bar/m", "/bar/r/s" })
+      try {
+        invoke (get (u).accept (APPLICATION_JSON).header ("JSONPath", "$.q"));
+        fail (u);
+      } catch (UnhandledException e) {
+        assertThat (e.getCause () instanceof PathNotFoundException, is (true));
+      }
+  }
+
+  @Test
+  public void limits () throws Exception {
+    MockHttpResponse r = invoke (get ("/bar").accept (APPLICATION_JSON).header ("JSONPath", "$.c[?(@.v >]"));
+    assertThat (r.getStatus (), is (400));
+    assertThat (r.getContentAsString (), is ("Malformed JSONPath"));
+    PathLimits l = new PathLimits (2, 32, 4, 8);
+    d.getProviderFactory ().register (new ContextResolver <PathLimits> () {
+      @Override
+      public PathLimits getContext (Class <?> t) {
+        return l;
+      }
+    });
+    PathCache c = new PathCache ();
+    d.getProviderFactory ().register (new ContextResolver <PathCache> () {
+      @Override
+      public PathCache getContext (Class <?> t) {
+        return c;
+      }
+    });
+    r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.a, $.x, $.y"));
+    assertThat (r.getStatus (), is (400));
+    assertThat (r.getContentAsString (), is ("JSONPath has more than 2 paths"));
+    r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.a.b.c.d.e"));
+    assertThat (r.getContentAsString (), is ("JSONPath has more than 4 steps"));
+    assertThat (l.rejected (), is (2L));
+    for (int i = 0; i < 3; i++) {
+      r = invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.a[?(@.b =="));
+      assertThat (r.getStatus (), is (400));
+      assertThat (r.getContentAsString (), is ("Malformed JSONPath"));
+    }
+    assertThat (l.invalid (), is (3L));
+    assertThat (c.misses (), is (1L));
+    assertThat (read ("/bar/m", "$.a.b").toString (), is ("\"c\""));
+    assertThat (c.misses () + c.hits (), is (2L));
+    try {
+      invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.q"));
+      fail ();
+    } catch (UnhandledException e) {
+      assertThat (e.getCause () instanceof PathNotFoundException, is (true));
+    }
+    assertThat (l.failures (), is (1L));
+    assertThat (l.rejected (), is (2L));
+  }
+
+  @Test
+  public void refresh () throws Exception {
+    JsonPathInterceptor i = new JsonPathInterceptor ();
+    d = createDispatcher ();
+    d.getProviderFactory ().register (i);
+    d.getProviderFactory ().register (JacksonJsonProvider.class);
+    d.getRegistry ().addSingletonResource (new Bar ());
+    AtomicInteger n = new AtomicInteger ();
+    d.getProviderFactory ().register (new ContextResolver <JsonProvider> () {
+      @Override
+      public JsonProvider getContext (Class <?> t) {
+        n.incrementAndGet ();
+        return new JacksonBeanJsonProvider (m);
+      }
+    });
+    for (int k = 0; k < 3; k++)
+      assertThat (read ("/bar/m", "$.a.b").toString (), is ("\"c\""));
+    assertThat (n.get (), is (1));
+    i.refresh ();
+    assertThat (read ("/bar/m", "$.items[*].id").toString (), is ("[1,2,3]"));
+    assertThat (n.get (), is (2));
+  }
+
+  @Test
+  public void binary () throws Exception {
+    BinaryOutput b = new BinaryOutput ();
+    d.getProviderFactory ().register (new ContextResolver <BinaryOutput> () {
+      @Override
+      public BinaryOutput getContext (Class <?> t) {
+        return b;
+      }
+    });
+    ObjectMapper s = new ObjectMapper (new SmileFactory ()), c = new ObjectMapper (new CBORFactory ());
+    for (String p : new String[] { "$.items[*].id", "$.a", "$['x','y']", "$.items[?(@.price > 2.6)]", "$.a.b" }) {
+      JsonNode e = read ("/bar/m", p);
+      for (String u : new String[] { "/bar/o", "/bar/t", "/bar/r/s" }) {
+        MockHttpResponse r = invoke (get (u).accept ("application/x-jackson-smile")
+                                            .accept ("application/json;q=0.5").header ("JSONPath", p));
+        assertThat (r.getOutputHeaders ().getFirst ("Content-Type").toString (), is ("application/x-jackson-smile"));
+        assertThat (r.getOutputHeaders ().get ("Vary"), is (asList ((Object) "Accept")));
+        assertThat (p + " " + u, s.readTree (r.getOutput ()), is (e));
+        r = invoke (get (u).accept ("application/cbor").accept ("application/json;q=0.5").header ("JSONPath", p));
+        assertThat (p + " " + u, c.readTree (r.getOutput ()), is (e));
+        r = invoke (get (u).accept (APPLICATION_JSON).header ("JSONPath", p));
+        assertThat (r.getOutputHeaders ().get ("Vary"), is (asList ((Object) "Accept")));
+      }
+    }
+  }
+
+  @Test
+  public void split () {
+    assertThat (JsonPathInterceptor.split (asList ("$.a, $['b,c'].d", "$.e[?(@.f in [1,2])]", " ")),
+                is (asList ("$.a", "$['b,c'].d", "$.e[?(@.f in [1,2])]")));
+  }
+
+  @Test
+  public void responseCache () throws Exception {
+    ResponseCache c = new ResponseCache (1 << 20, true, false);
+    d.getProviderFactory ().register (new ContextResolver <ResponseCache> () {
+      @Override
+      public ResponseCache getContext (Class <?> t) {
+        return c;
+      }
+    });
+    MockHttpResponse r = invoke (get ("/bar/e").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (r.getContentAsString (), is ("[1,2,3]"));
+    Object t = r.getOutputHeaders ().getFirst ("ETag");
+    assertThat (c.misses (), is (1L));
+    r = invoke (get ("/bar/e").accept (APPLICATION_JSON).header ("JSONPath", "$.items[ * ].id"));
+    assertThat (r.getStatus (), is (200));
+    assertThat (r.getContentAsString (), is ("[1,2,3]"));
+    assertThat (r.getOutputHeaders ().getFirst ("ETag"), is (t));
+    assertThat (c.hits (), is (1L));
+    r = invoke (get ("/bar/e").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id")
+                              .header ("If-None-Match", t.toString ()));
+    assertThat (r.getStatus (), is (304));
+    assertThat (r.getOutput ().length, is (0));
+    r = invoke (get ("/bar/v").accept (APPLICATION_JSON).header ("JSONPath", "$.a.b"));
+    r = invoke (get ("/bar/v").accept (APPLICATION_JSON).header ("JSONPath", "$.a.b"));
+    assertThat (r.getContentAsString (), is ("\"c\""));
+    assertThat (c.hits (), is (3L));
+    invoke (get ("/bar/m").accept (APPLICATION_JSON).header ("JSONPath", "$.a.b"));
+    assertThat (c.misses (), is (2L));
+    r = invoke (get ("/bar/g").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (r.getContentAsString (), is ("[4]"));
+    assertThat (c.misses (), is (3L));
+    r = invoke (get ("/bar/e").accept (APPLICATION_JSON).header ("JSONPath", "$.items[*].id"));
+    assertThat (r.getContentAsString (), is ("[1,2,3]"));
+    assertThat (c.hits (), is (4L));
+  }
+
+  @Test
+  public void sequences () throws Exception {
+    String[] p = { "$[*].id", "$[?(@.price > 2.6)].id", "$[1:].price", "$[0,2]", "$[1].id", "$[1]['id','price']",
+                   "$..id", "$.length()" };
+    for (String j : p) {
+      JsonNode e = read ("/bar/m", j.replace ("$", "$.items"));
+      assertThat (j, read ("/bar/s", j), is (e));
+      assertThat (j, read ("/bar/i", j), is (e));
+    }
+    assertThat (read ("/bar/n", "$[0:3].id"), is (m.readTree ("[1,2,3]")));
+    assertThat (read ("/bar/n", "$[4].price"), is (m.readTree ("7.5")));
+  }
 }
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.jayway.jsonpath.JsonPath;
+
+public class PathCacheTest {
+
+  @Test
+  public void normalize () {
+    assertThat (PathCache.normalize ("$.a.b"), is ("$.a.b"));
+    assertThat (PathCache.normalize (" $.c[ * ] .v\t"), is ("$.c[*].v"));
+    assertThat (PathCache.normalize ("$['a b', \"c d\"]"), is ("$['a b',\"c d\"]"));
+    assertThat (PathCache.normalize ("$[?(@.a in ['x', 'y'] && @.b > 1)]"), is ("$[?(@.a in ['x','y']&&@.b>1)]"));
+    assertThat (PathCache.normalize ("$[?(@.a[0]  nin\t['x'])]"), is ("$[?(@.a[0] nin ['x'])]"));
+    assertThat (PathCache.normalize ("$[?(@.a anyof ['x'] || @.a noneof ['y'] || @.a subsetof ['z'])]"),
+                is ("$[?(@.a anyof ['x']||@.a noneof ['y']||@.a subsetof ['z'])]"));
+    assertThat (PathCache.normalize ("$[?(@.n =~ /a  +b/i)]"), is ("$[?(@.n=~/a  +b/i)]"));
+    assertThat (PathCache.normalize ("$[?(@.n =~ / \\/ /)]"), is ("$[?(@.n=~/ \\/ /)]"));
+    assertThat (PathCache.normalize ("$['a\\\\'] .b"), is ("$['a\\\\'].b"));
+    assertThat (PathCache.normalize ("$[' \\' ', 'c d']"), is ("$[' \\' ','c d']"));
+    assertThat (PathCache.normalize ("$[?(@.n =~ /a\\\\/ && @.m == 1)]"), is ("$[?(@.n=~/a\\\\/&&@.m==1)]"));
+  }
+
+  @Test
+  public void operators () {
+    String d = "{\"l\":[{\"a\":\"x\",\"t\":[1,2],\"n\":\"a  b\"},{\"a\":\"y\",\"t\":[],\"n\":\"ab\"}]}";
+    for (String p : new String[] { "$.l[?(@.a in ['x', 'z'])].a", "$.l[?(@.a nin ['x'])].a",
+                                   "$.l[?(@.t contains 2)].a", "$.l[?(@.t all [1, 2])].a", "$.l[?(@.t size 2)].a",
+                                   "$.l[?(@.t empty true)].a", "$.l[?(@.a  exists true)].a",
+                                   "$.l[?(@.n =~ /a  b/)].a", "$.l[?(@.n =~ /A  B/i)].a" }) {
+      Object e = JsonPath.read (d, p);
+      assertThat (p, JsonPath.read (d, PathCache.normalize (p)), is (e));
+      assertThat (p, new PathCache ().compile (p).read (d), is (e));
+    }
+  }
+
+  @Test
+  public void hits () {
+    PathCache c = new PathCache ();
+    JsonPath p = c.compile ("$.a[*]");
+    assertThat (c.compile ("$.a [*]"), is (sameInstance (p)));
+    assertThat (c.hits (), is (1L));
+    assertThat (c.misses (), is (1L));
+  }
+
+  @Test
+  public void evictions () {
+    PathCache c = new PathCache (2);
+    c.compile ("$.a");
+    c.compile ("$.b");
+    c.compile ("$.a");
+    c.compile ("$.c");
+    assertThat (c.size (), is (2));
+    assertThat (c.evictions (), is (1L));
+    c.compile ("$.a");
+    assertThat (c.hits (), is (2L));
+    c.compile ("$.b");
+    assertThat (c.misses (), is (4L));
+  }
+}
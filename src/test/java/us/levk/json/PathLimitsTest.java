@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class PathLimitsTest {
+
+  @Test
+  public void limits () {
+    PathLimits l = new PathLimits (2, 16, 3, 4);
+    assertThat (l.check (asList ("$.a", "$.b")), is (nullValue ()));
+    assertThat (l.check (asList ("$.a", "$.b", "$.c")), is ("JSONPath has more than 2 paths"));
+    assertThat (l.check (singletonList ("$['aaaaaaaaaaaaaa']")), is ("JSONPath is longer than 16 characters"));
+    assertThat (l.check (singletonList ("$.a.b.c.d")), is ("JSONPath has more than 3 steps"));
+    assertThat (l.check (singletonList ("$[?(@.a)]")), is (nullValue ()));
+    assertThat (l.check (singletonList ("$.a[?(@.b)]")), is ("JSONPath has more than 3 steps"));
+    assertThat (l.check (singletonList ("$['.[.(']")), is (nullValue ()));
+    assertThat (l.check (singletonList ("$['\\'.[(']")), is (nullValue ()));
+    assertThat (l.rejected (), is (4L));
+  }
+
+  @Test
+  public void malformed () {
+    PathLimits l = new PathLimits (1, 16, 8, 1);
+    assertThat (l.malformed ("$.["), is ("Malformed JSONPath"));
+    assertThat (l.check (singletonList ("$.[")), is ("Malformed JSONPath"));
+    l.malformed ("$.]");
+    assertThat (l.check (singletonList ("$.[")), is (nullValue ()));
+    assertThat (l.check (singletonList ("$.]")), is ("Malformed JSONPath"));
+    assertThat (l.invalid (), is (4L));
+    assertThat (l.rejected (), is (0L));
+  }
+}
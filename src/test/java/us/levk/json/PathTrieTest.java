@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static com.jayway.jsonpath.Configuration.builder;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.ConcurrentHashMap.newKeySet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.EvaluationListener;
+import com.jayway.jsonpath.PathNotFoundException;
+
+public class PathTrieTest {
+
+  public static class Counted {
+    static int reads;
+
+    @JsonProperty String name;
+    @JsonProperty List <Counted> children = new ArrayList <> ();
+
+    public Counted getFirst () {
+      reads++;
+      return children.isEmpty () ? null : children.get (0);
+    }
+
+    static Counted c (String n, Counted... c) {
+      Counted r = new Counted ();
+      r.name = n;
+      r.children.addAll (asList (c));
+      return r;
+    }
+  }
+
+  PathCache cache = new PathCache ();
+  JacksonBeanJsonProvider provider = new JacksonBeanJsonProvider (new ObjectMapper ());
+
+  public static class Row {
+    static final Set <String> threads = newKeySet ();
+
+    @JsonProperty int id;
+    @JsonProperty double score;
+
+    public String getThread () {
+      threads.add (Thread.currentThread ().getName ());
+      return "";
+    }
+  }
+
+  public static class Ticket {
+    private final long id;
+    private final String status;
+
+    Ticket (long i, String s) {
+      id = i;
+      status = s;
+    }
+
+    public long getId () {
+      return id;
+    }
+
+    public double getPrice () {
+      return id * 0.5 - 1;
+    }
+
+    public int getRank () {
+      return (int) id % 3;
+    }
+
+    public String getStatus () {
+      return status;
+    }
+
+    public boolean isOpen () {
+      return "OPEN".equals (status);
+    }
+
+    public Float getRatio () {
+      return id / 4f;
+    }
+  }
+
+  Map <String, Object> read (Object o, String... p) {
+    return read (null, o, p);
+  }
+
+  Map <String, Object> read (Parallelism a, Object o, String... p) {
+    return read (a, null, o, p);
+  }
+
+  Map <String, Object> read (Parallelism a, Meter b, Object o, String... p) {
+    List <PathCache.Entry> e = new ArrayList <> ();
+    for (String s : p)
+      e.add (cache.entry (s));
+    Configuration c = builder ().jsonProvider (provider.fork (null, b)).build ();
+    return new PathTrie (asList (p), e, a).read (o, b == null ? c : c.addEvaluationListeners (b));
+  }
+
+  @Test
+  public void sameAsJayway () {
+    Object o = new Bar ().m ();
+    String[] p = { "$.a.b", "$.a", "$.items[*].id", "$.items[*].price", "$['x','y']", "$['x','q']", "$.items[1]",
+                   "$.items[0:2].price", "$.items[2,0].id", "$.items[5]", "$.items[*]", "$.*", "$.q", "$.a.b.c", "$",
+                   "$..id", "$.items[?(@.price > 2.6)].id", "$.items[?(@.id == $.x)]", "$.a[?(@.b == 'c')]",
+                   "$.items[?(@.price)].id" };
+    Map <String, Object> r = read (o, p);
+    Configuration c = builder ().jsonProvider (provider).build ();
+    for (String s : p)
+      try {
+        assertThat (s, r.get (s), is (cache.compile (s).<Object> read (o, c)));
+      } catch (PathNotFoundException e) {
+        assertFalse (s, r.containsKey (s));
+      }
+  }
+
+  @Test
+  public void comparisons () {
+    List <Object> t = new ArrayList <> ();
+    for (int i = 0; i < 12; i++)
+      t.add (new Ticket (i, i % 2 == 0 ? "OPEN" : i % 3 == 0 ? null : "CLOSED"));
+    t.add (new Bar ().m ());
+    Object o = singletonMap ("t", t);
+    String[] p = { "$.t[?(@.price < 2)].id", "$.t[?(@.price <= 2)].id", "$.t[?(@.price >= 2.5)].id",
+                   "$.t[?(@.id > 3.5)].id", "$.t[?(@.id != 4)].id", "$.t[?(@.rank == 1)].id",
+                   "$.t[?(@.status == 'OPEN')].id", "$.t[?(@.status != 'OPEN')].id", "$.t[?(@.open == true)].id",
+                   "$.t[?(@['status'] == 'CLOSED')].id", "$.t[?(@.ratio > 1.5)].id", "$.t[?(@.x == 1)]",
+                   "$.t[?(@.id > -10)].id", "$.t[?(@.status < 'P')].id" };
+    Map <String, Object> r = read (o, p);
+    Configuration c = builder ().jsonProvider (provider).build ();
+    for (String s : p)
+      assertThat (s, r.get (s), is (cache.compile (s).<Object> read (o, c)));
+    assertThat (provider.type (Ticket.class).unboxed (0) instanceof BeanType.LongAccessor, is (true));
+    assertThat (Comparison.parse ("[?(@.price>2)]").test (new Ticket (7, null), provider), is (1));
+    assertThat (Comparison.parse ("[?(@.score<0.5)]").test (new Row (), provider), is (1));
+  }
+
+  @Test
+  public void sharedReads () {
+    Counted o = Counted.c ("r", Counted.c ("a", Counted.c ("aa")), Counted.c ("b"));
+    Counted.reads = 0;
+    Map <String, Object> r = read (o, "$.first.name", "$.first.first.name", "$.first.children[*].name", "$.*.name");
+    assertThat (r.get ("$.first.name"), is ("a"));
+    assertThat (r.get ("$.first.first.name"), is ("aa"));
+    assertThat (r.get ("$.first.children[*].name"), is (asList ("aa")));
+    assertThat (r.get ("$.*.name"), is (asList ("a")));
+    assertThat (Counted.reads, is (2));
+  }
+
+  @Test
+  public void found () {
+    Object o = new Bar ().m ();
+    String[] p = { "$.items[*].id", "$.x" };
+    List <String> f = new ArrayList <> ();
+    List <PathCache.Entry> e = new ArrayList <> ();
+    for (String s : p)
+      e.add (cache.entry (s));
+    Configuration c = builder ().jsonProvider (provider.fork ()).evaluationListener (r -> {
+      f.add (r.path () + " " + r.index () + " " + r.result ());
+      return EvaluationListener.EvaluationContinuation.CONTINUE;
+    }).build ();
+    new PathTrie (asList (p), e, null).read (o, c);
+    assertThat (f, is (asList ("$.items[*].id 0 1", "$.items[*].id 1 2", "$.items[*].id 2 3", "$.x 0 1")));
+  }
+
+  @Test
+  public void parallel () {
+    Random r = new Random (0);
+    Row[] o = new Row[10000];
+    for (int i = 0; i < o.length; i++) {
+      o[i] = new Row ();
+      o[i].id = i;
+      o[i].score = r.nextDouble ();
+    }
+    Map <String, Object> m = singletonMap ("rows", asList (o));
+    String[] p = { "$.rows[?(@.score > 0.9)].id", "$.rows[*].id", "$.rows[?(@.thread == '')].score" };
+    Parallelism a = new Parallelism (100, 4);
+    try {
+      Row.threads.clear ();
+      Map <String, Object> v = read (a, m, p);
+      Configuration c = builder ().jsonProvider (provider).build ();
+      for (String s : p)
+        assertThat (s, v.get (s), is (cache.compile (s).<Object> read (m, c)));
+      assertThat (Row.threads.stream ().anyMatch (t -> t.startsWith ("jsonpath-")), is (true));
+    } finally {
+      a.shutdown ();
+    }
+  }
+
+  @Test
+  public void parallelBudget () {
+    Row[] o = new Row[10000];
+    for (int i = 0; i < o.length; i++) {
+      o[i] = new Row ();
+      o[i].id = i;
+      o[i].score = i % 10 / 10.0;
+    }
+    Map <String, Object> m = singletonMap ("rows", asList (o));
+    String[] p = { "$.rows[?(@.score > 0.85)].id", "$.rows[*].id" };
+    Parallelism a = new Parallelism (100, 4);
+    try {
+      Meter s = new Budget (0, 0, 0).start (), r = new Budget (0, 0, 0).start ();
+      assertThat (read (a, r, m, p), is (read (null, s, m, p)));
+      assertThat (r.visited (), is (s.visited ()));
+      assertThat (r.reads (), is (s.reads ()));
+      assertThat (r.found (), is (s.found ()));
+      Budget b = new Budget (s.visited () - 1, 0, 0);
+      try {
+        read (a, b.start (), m, p);
+        fail ();
+      } catch (WebApplicationException e) {
+        assertThat (b.aborts (), is (1L));
+      }
+      b = new Budget (0, s.found () - 1, 0);
+      try {
+        read (a, b.start (), m, p);
+        fail ();
+      } catch (WebApplicationException e) {
+        assertThat (b.aborts (), is (1L));
+      }
+    } finally {
+      a.shutdown ();
+    }
+  }
+}
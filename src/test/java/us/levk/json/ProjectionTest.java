@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class ProjectionTest {
+
+  @Test
+  public void properties () {
+    Projection p = new Projection (asList ("$.a.b, $['c','d'].e", "$.f"));
+    assertTrue (p.present ());
+    assertThat (p.properties (), is (new HashSet <> (asList ("a", "c", "d", "f"))));
+    assertThat (p.properties ("a"), is (new HashSet <> (asList ("b"))));
+    assertThat (p.properties ("a", "b"), is (nullValue ()));
+    assertThat (p.properties ("f"), is (nullValue ()));
+    assertThat (p.properties ("g").isEmpty (), is (true));
+    assertTrue (p.referenced ("d", "e"));
+    assertFalse (p.referenced ("d", "g"));
+  }
+
+  @Test
+  public void arrays () {
+    Projection p = new Projection (asList ("$.items[0:10].id", "$.items[12].name", "$.rows[*].x",
+                                           "$.open[?(@.status == 'OPEN' && @.owner['id'] > 2)].price"));
+    assertThat (p.properties ("items"), is (new HashSet <> (asList ("id", "name"))));
+    assertThat (p.limit ("items"), is (13));
+    assertThat (p.limit ("rows"), is (Integer.MAX_VALUE));
+    assertTrue (p.wildcard ("rows"));
+    assertFalse (p.wildcard ("items"));
+    assertThat (p.properties ("open"), is (new HashSet <> (asList ("status", "owner", "price"))));
+    assertThat (p.properties ("open", "owner"), is (new HashSet <> (asList ("id"))));
+    assertThat (p.limit ("absent"), is (0));
+    assertThat (new Projection (asList ("$[:5].a")).limit (), is (5));
+    assertThat (new Projection (asList ("$.a[0]")).limit ("a"), is (1));
+    assertThat (new Projection (asList ("$.a[0]")).properties ("a"), is (nullValue ()));
+  }
+
+  @Test
+  public void unrestricted () {
+    assertFalse (new Projection (emptyList ()).present ());
+    assertThat (new Projection (emptyList ()).properties (), is (nullValue ()));
+    assertThat (new Projection (asList ("$.a", "$..b")).properties (), is (nullValue ()));
+    assertThat (new Projection (asList ("$.a.length()")).properties (), is (nullValue ()));
+    assertThat (new Projection (asList ("$.a[?(@.b == $.c)].d")).properties ("a"), is (nullValue ()));
+    assertThat (new Projection (asList ("$.a.b")).limit ("a"), is (Integer.MAX_VALUE));
+    assertThat (new Projection (asList ("$.a[0]", "$.a")).limit ("a"), is (Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void filters () {
+    assertThat (new Projection (asList ("$.items[?(@['a'] > 1)].b")).properties ("items"),
+                is (new HashSet <> (asList ("a", "b"))));
+    assertThat (new Projection (asList ("$.items[?(@[\"a\"] > 1)].b")).properties ("items"), is (nullValue ()));
+    assertThat (new Projection (asList ("$.items[?(@..price > 1)].b")).properties ("items"), is (nullValue ()));
+    assertThat (new Projection (asList ("$.items[?(@.a.length() > 1)].b")).properties ("items"), is (nullValue ()));
+    assertThat (new Projection (asList ("$.items[?(@ > 1)]")).properties ("items"), is (nullValue ()));
+    assertThat (new Projection (asList ("$.items[?(@.a == '$..x(\"')].b")).properties ("items"),
+                is (new HashSet <> (asList ("a", "b"))));
+    assertThat (new Projection (asList ("$.items[?(@.a[0] == 1)].b")).properties ("items", "a"), is (nullValue ()));
+  }
+
+  @Test
+  public void wildcards () {
+    Projection p = new Projection (asList ("$.*.total", "$.summary.count"));
+    assertTrue (p.referenced ("summary"));
+    assertTrue (p.referenced ("other"));
+    assertThat (p.properties ("summary"), is (new HashSet <> (asList ("total", "summary", "count"))));
+    assertThat (p.properties ("other"), is (new HashSet <> (asList ("total", "summary"))));
+    assertThat (p.properties ("other", "total"), is (nullValue ()));
+  }
+}
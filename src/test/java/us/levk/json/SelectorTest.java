@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import us.levk.json.Selector.Kind;
+
+public class SelectorTest {
+
+  @Test
+  public void properties () {
+    Selector s = Selector.parse ("$.a['b','c'].d");
+    assertThat (s.steps.size (), is (3));
+    assertThat (s.steps.get (1).names, is (asList ("b", "c")));
+    assertFalse (s.definite ());
+    assertTrue (Selector.parse ("$.a['b','c']").definite ());
+    assertTrue (Selector.parse ("$.a['b','c']").merge ());
+    assertTrue (Selector.parse ("$['a'][0].b").definite ());
+  }
+
+  @Test
+  public void arrays () {
+    Selector s = Selector.parse ("$.a[*][1,2][1:3][:2][?(@.x[0] == ']')]");
+    assertThat (s.steps.get (1).kind, is (Kind.WILDCARD));
+    assertTrue (s.steps.get (2).element (2));
+    assertTrue (s.steps.get (3).element (2));
+    assertFalse (s.steps.get (3).element (3));
+    assertTrue (s.steps.get (4).element (0));
+    assertThat (s.steps.get (5).filter, is ("[?(@.x[0]==']')]"));
+  }
+
+  @Test
+  public void scan () {
+    Selector s = Selector.parse ("$..a..[0]..*");
+    assertThat (s.steps.size (), is (6));
+    assertTrue (s.has (Kind.SCAN));
+  }
+
+  @Test
+  public void unsupported () {
+    assertThat (Selector.parse ("$.a.length()"), is (nullValue ()));
+    assertThat (Selector.parse ("$.a[-1]"), is (nullValue ()));
+    assertThat (Selector.parse ("@.a"), is (nullValue ()));
+    assertThat (Selector.parse ("$.a.."), is (nullValue ()));
+    assertThat (Selector.parse ("$.a['b"), is (nullValue ()));
+  }
+}
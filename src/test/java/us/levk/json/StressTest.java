@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ * Copyright (c) 2017 lev.v.kuznetsov@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package us.levk.json;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.CoreMatchers.is;
+import static org.jboss.resteasy.mock.MockDispatcherFactory.createDispatcher;
+import static org.jboss.resteasy.mock.MockHttpRequest.get;
+import static org.jboss.resteasy.mock.MockHttpRequest.post;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.ws.rs.ext.ContextResolver;
+
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Drives the whole filter pipeline through the mock dispatcher with a mix of
+ * paths and entity shapes: results must hold under contention and bytes
+ * allocated per request must stay within the budgets checked in as
+ * {@code allocation.properties}, multiples of the bytes an unfiltered request
+ * allocates in the same run
+ */
+public class StressTest {
+
+  /**
+   * Scenario name, method, resource, path
+   */
+  static final String[][] SCENARIOS = { { "bean", "GET", "/bar", "$.c[*].c[*].v" }, { "scan", "GET", "/bar", "$..v" },
+                                        { "map", "GET", "/bar/m", "$.items[*].id" },
+                                        { "filter", "GET", "/bar/m", "$.items[?(@.price > 2.6)].id" },
+                                        { "multiple", "GET", "/bar/m", "$.a.b, $['x','y']" },
+                                        { "array", "GET", "/bar/a", "$[1:].price" },
+                                        { "custom", "POST", "/bar", "$.foo" }, { "tree", "GET", "/bar/t", "$.items[0]" },
+                                        { "raw", "GET", "/bar/r/s", "$.items[*].price" } };
+
+  /**
+   * Unfiltered request the allocation budgets are relative to
+   */
+  static final String[] BASELINE = { "baseline", "GET", "/bar/m", null };
+
+  Dispatcher d;
+
+  @Before
+  public void setup () {
+    JsonProvider p = new JacksonBeanJsonProvider (new ObjectMapper ());
+    d = createDispatcher ();
+    d.getProviderFactory ().register (JsonPathInterceptor.class);
+    d.getProviderFactory ().register (JacksonJsonProvider.class);
+    d.getProviderFactory ().register (new ContextResolver <JsonProvider> () {
+      @Override
+      public JsonProvider getContext (Class <?> t) {
+        return p;
+      }
+    });
+    d.getRegistry ().addSingletonResource (new Bar ());
+  }
+
+  String invoke (String[] s) throws Exception {
+    MockHttpRequest q = "POST".equals (s[1]) ? post (s[2]) : get (s[2]);
+    MockHttpResponse r = new MockHttpResponse ();
+    d.invoke (s[3] == null ? q.accept (APPLICATION_JSON) : q.accept (APPLICATION_JSON).header ("JSONPath", s[3]), r);
+    assertThat (s[0], r.getStatus (), is (200));
+    return r.getContentAsString ();
+  }
+
+  @Test
+  public void contention () throws Exception {
+    Map <String, String> e = new HashMap <> ();
+    for (String[] s : SCENARIOS)
+      e.put (s[0], invoke (s));
+    Queue <String> f = new ConcurrentLinkedQueue <> ();
+    ExecutorService x = Executors.newFixedThreadPool (8);
+    try {
+      List <Future <?>> w = new ArrayList <> ();
+      for (int t = 0; t < 8; t++) {
+        int o = t;
+        w.add (x.submit (() -> {
+          for (int i = 0; i < 400; i++) {
+            String[] s = SCENARIOS[(i + o) % SCENARIOS.length];
+            String r = invoke (s);
+            if (!r.equals (e.get (s[0]))) f.add (s[0] + ": " + r);
+          }
+          return null;
+        }));
+      }
+      for (Future <?> t : w)
+        t.get ();
+    } finally {
+      x.shutdown ();
+    }
+    assertThat (f.toString (), f.isEmpty (), is (true));
+  }
+
+  /**
+   * @param m
+   *          thread bean
+   * @param s
+   *          scenario
+   * @return bytes allocated per request once warm
+   */
+  long allocated (ThreadMXBean m, String[] s) throws Exception {
+    long t = Thread.currentThread ().getId ();
+    for (int i = 0; i < 2000; i++)
+      invoke (s);
+    long a = m.getThreadAllocatedBytes (t);
+    for (int i = 0; i < 1000; i++)
+      invoke (s);
+    return (m.getThreadAllocatedBytes (t) - a) / 1000;
+  }
+
+  @Test
+  public void allocation () throws Exception {
+    assumeTrue (getThreadMXBean () instanceof ThreadMXBean);
+    ThreadMXBean m = (ThreadMXBean) getThreadMXBean ();
+    assumeTrue (m.isThreadAllocatedMemorySupported () && m.isThreadAllocatedMemoryEnabled ());
+    Properties p = new Properties ();
+    try (InputStream i = getClass ().getResourceAsStream ("allocation.properties")) {
+      p.load (i);
+    }
+    List <String> f = new ArrayList <> ();
+    long b = allocated (m, BASELINE);
+    for (String[] s : SCENARIOS) {
+      long r = allocated (m, s);
+      double l = Double.parseDouble (p.getProperty (s[0]));
+      if (r > b * l) f.add (s[0] + " allocated " + r + " bytes per request, budget is " + l + " times the baseline " + b);
+    }
+    assertThat (f.toString (), f.isEmpty (), is (true));
+  }
+}